@@ -0,0 +1,70 @@
+package com.mycompany.app.service;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Matching a full HD frame against a 10k image catalogue, per tile and per pixel.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchMatcherBenchmark {
+
+    @Param({"8", "32"})
+    public int tileSize;
+
+    private BatchMatcher batch;
+    private BufferedImage frame;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(3);
+        int[] ids = new int[10000];
+        int[] colors = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i;
+            colors[i] = random.nextInt(0x1000000);
+        }
+        batch = new BatchMatcher(new ColorMatcher(ids, colors));
+
+        // A game-like frame: flat background with a few hundred flat colored shapes
+        frame = new BufferedImage(1920, 1080, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = frame.createGraphics();
+        g.setColor(new Color(0x3a7d44));
+        g.fillRect(0, 0, 1920, 1080);
+        for (int i = 0; i < 300; i++) {
+            g.setColor(new Color(random.nextInt(0x1000000)));
+            g.fillRect(random.nextInt(1900), random.nextInt(1060), 20 + random.nextInt(200), 20 + random.nextInt(200));
+        }
+        g.dispose();
+    }
+
+    @Benchmark
+    public BatchMatcher.TileMatches perTile() {
+        return batch.nearestPerTile(frame, tileSize, ColorMetric.RGB);
+    }
+
+    @Benchmark
+    public int[] perPixel() {
+        return batch.nearest(frame, ColorMetric.RGB);
+    }
+}
@@ -0,0 +1,108 @@
+package com.mycompany.app.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Start-up cost of a matcher: loading image_info.json and reading every average color,
+ * against mapping image_info.bin and doing the same. Run with -prof gc to compare the
+ * bytes allocated per load (gc.alloc.rate.norm), which is what stays resident.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CatalogueLoadBenchmark {
+
+    @Param({"1000", "50000"})
+    public int images;
+
+    private Path dir;
+    private Path json;
+    private Path binary;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("catalogue-bench");
+        json = dir.resolve("image_info.json");
+        binary = dir.resolve("image_info.bin");
+
+        Random random = new Random(3);
+        List<ImageRecord> records = new ArrayList<>();
+        for (int i = 0; i < images; i++) {
+            ColorStats stats = ColorStats.ofUniformColor(96, 96, 4000,
+                random.nextInt(256), random.nextInt(256), random.nextInt(256));
+            records.add(new ImageRecord("pokemon-" + i + ".png", dir + "/images/pokemon-" + i + ".png",
+                4096, 0, 0, stats));
+        }
+        try (CatalogueWriter writer = new CatalogueWriter(json)) {
+            for (ImageRecord record : records) {
+                writer.write(record);
+            }
+            writer.commit();
+        }
+        ColorIndex.write(binary, records);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(json);
+        Files.deleteIfExists(binary);
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public long loadJson() throws IOException {
+        long checksum = 0;
+        try (Reader reader = Files.newBufferedReader(json, StandardCharsets.UTF_8)) {
+            JsonObject root = JsonParser.parseReader(reader).getAsJsonObject();
+            for (JsonElement element : root.getAsJsonArray("images")) {
+                String rgb = element.getAsJsonObject().get("rgbAverage").getAsString();
+                int g = rgb.indexOf('G');
+                int b = rgb.indexOf('B');
+                checksum += Integer.parseInt(rgb.substring(1, g))
+                    + Integer.parseInt(rgb.substring(g + 1, b))
+                    + Integer.parseInt(rgb.substring(b + 1));
+            }
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public long loadBinary() throws IOException {
+        long checksum = 0;
+        ColorIndex index = ColorIndex.open(binary);
+        for (int i = 0; i < index.size(); i++) {
+            int rgb = index.rgb(i);
+            checksum += ((rgb >> 16) & 0xff) + ((rgb >> 8) & 0xff) + (rgb & 0xff);
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,108 @@
+package com.mycompany.app.service;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serialization cost of a finished run: streaming image_info.json, saving the manifest
+ * and writing image_info.bin, in bulk or a record at a time. Records carry real palettes
+ * and signatures taken from synthetic sprites. Run with -prof gc to compare what each
+ * writer allocates per record.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CatalogueWriteBenchmark {
+
+    @Param({"1000", "50000"})
+    public int images;
+
+    private Path dir;
+    private List<ImageRecord> records;
+    private IndexManifest manifest;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("catalogue-write-bench");
+        ColorStats[] stats = new ColorStats[64];
+        for (int i = 0; i < stats.length; i++) {
+            stats[i] = ImagePixelParser.colorStats(SyntheticSprites.sprite(96, BufferedImage.TYPE_INT_ARGB, i));
+        }
+        records = new ArrayList<>();
+        manifest = new IndexManifest();
+        for (int i = 0; i < images; i++) {
+            ImageRecord record = new ImageRecord("pokemon-" + i + ".png", dir + "/images/pokemon-" + i + ".png",
+                4096, 1700000000000L + i, i * 0x9e3779b97f4a7c15L, stats[i % stats.length]);
+            records.add(record);
+            manifest.put(record);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        for (String name : new String[] {"image_info.json", "image_manifest.json", "image_info.bin"}) {
+            Files.deleteIfExists(dir.resolve(name));
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public int writeJson() throws IOException {
+        try (CatalogueWriter writer = new CatalogueWriter(dir.resolve("image_info.json"))) {
+            for (ImageRecord record : records) {
+                writer.write(record);
+            }
+            writer.commit();
+            return writer.getTotalImages();
+        }
+    }
+
+    @Benchmark
+    public long saveManifest() throws IOException {
+        Path file = dir.resolve("image_manifest.json");
+        manifest.save(file);
+        return Files.size(file);
+    }
+
+    @Benchmark
+    public long writeBinary() throws IOException {
+        Path file = dir.resolve("image_info.bin");
+        ColorIndex.write(file, records);
+        return Files.size(file);
+    }
+
+    /** The record-at-a-time writer used when merging shards, against the bulk write above. */
+    @Benchmark
+    public long writeBinaryStreaming() throws IOException {
+        Path file = dir.resolve("image_info.bin");
+        try (ColorIndex.Writer writer = ColorIndex.writer(file)) {
+            for (ImageRecord record : records) {
+                writer.write(record);
+            }
+            writer.commit();
+        }
+        return Files.size(file);
+    }
+}
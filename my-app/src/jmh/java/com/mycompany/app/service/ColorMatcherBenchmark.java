@@ -0,0 +1,90 @@
+package com.mycompany.app.service;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Nearest-color query latency of the k-d tree against the linear scan it replaces,
+ * across catalogue sizes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ColorMatcherBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int images;
+
+    private int[] colors;
+    private int[] queries;
+    private ColorMatcher matcher;
+    private MatchCache cache;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(5);
+        colors = new int[images];
+        int[] ids = new int[images];
+        for (int i = 0; i < images; i++) {
+            colors[i] = random.nextInt(0x1000000);
+            ids[i] = i;
+        }
+        matcher = new ColorMatcher(ids, colors);
+        cache = new MatchCache(matcher, 6, 4096);
+        queries = new int[1024];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = random.nextInt(0x1000000);
+        }
+    }
+
+    private int nextQuery() {
+        return queries[next++ & (queries.length - 1)];
+    }
+
+    @Benchmark
+    public int nearest() {
+        return matcher.nearest(nextQuery());
+    }
+
+    /** Cursor-style lookups through the viewer's quantized cache; the 1024 queries all fit in it. */
+    @Benchmark
+    public int cachedNearest() {
+        return cache.nearest(nextQuery());
+    }
+
+    @Benchmark
+    public int[] top10() {
+        return matcher.nearest(nextQuery(), 10);
+    }
+
+    @Benchmark
+    public int linearScan() {
+        int query = nextQuery();
+        int best = -1;
+        double bestDistance = Double.MAX_VALUE;
+        for (int i = 0; i < colors.length; i++) {
+            double distance = ColorMatcher.distance(colors[i], query);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = i;
+            }
+        }
+        return best;
+    }
+}
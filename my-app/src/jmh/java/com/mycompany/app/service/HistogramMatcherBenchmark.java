@@ -0,0 +1,73 @@
+package com.mycompany.app.service;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Full-scan latency of histogram signature ranking, per metric and catalogue size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HistogramMatcherBenchmark {
+
+    @Param({"1000", "50000"})
+    public int images;
+
+    @Param({"INTERSECTION", "CHI_SQUARE"})
+    public HistogramMetric metric;
+
+    private HistogramMatcher matcher;
+    private float[][] queries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(9);
+        float[] signatures = new float[images * ColorHistogram.SIZE];
+        int[] ids = new int[images];
+        for (int i = 0; i < images; i++) {
+            ids[i] = i;
+            System.arraycopy(randomSignature(random), 0, signatures, i * ColorHistogram.SIZE, ColorHistogram.SIZE);
+        }
+        matcher = new HistogramMatcher(ids, new int[images], signatures);
+        queries = new float[64][];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = randomSignature(random);
+        }
+    }
+
+    private static float[] randomSignature(Random random) {
+        float[] signature = new float[ColorHistogram.SIZE];
+        float total = 0;
+        for (int i = 0; i < 6; i++) {
+            float weight = random.nextFloat();
+            signature[random.nextInt(ColorHistogram.SIZE)] += weight;
+            total += weight;
+        }
+        for (int bin = 0; bin < signature.length; bin++) {
+            signature[bin] /= total;
+        }
+        return signature;
+    }
+
+    @Benchmark
+    public ColorMatcher.Match[] top10() {
+        return matcher.match(queries[next++ & (queries.length - 1)], 10, metric);
+    }
+}
@@ -0,0 +1,106 @@
+package com.mycompany.app.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A whole DocumentPokemon run over a generated directory of sprite PNGs: listing, decoding
+ * and scanning in parallel, and writing image_info.json, image_info.bin and the manifest.
+ * fullIndex starts from nothing each time; upToDate measures the incremental check alone,
+ * when every file is already in the manifest.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IndexingBenchmark {
+
+    @Param({"500"})
+    public int images;
+
+    private Path dir;
+    private Path imageDir;
+    private Path catalogue;
+    private Path binaryIndex;
+    private Path manifest;
+    private PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("indexing-bench");
+        imageDir = Files.createDirectory(dir.resolve("images"));
+        catalogue = dir.resolve("image_info.json");
+        binaryIndex = dir.resolve("image_info.bin");
+        manifest = dir.resolve("image_manifest.json");
+        int[] sizes = {96, 96, 96, 256, 475};
+        for (int i = 0; i < images; i++) {
+            int type = i % 3 == 0 ? RasterScanBenchmark.imageType("BYTE_INDEXED")
+                : RasterScanBenchmark.imageType("4BYTE_ABGR");
+            ImageIO.write(SyntheticSprites.sprite(sizes[i % sizes.length], type, i), "png",
+                imageDir.resolve("pokemon-" + i + ".png").toFile());
+        }
+        // The run prints a line per image; keep it out of the benchmark output
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.setOut(stdout);
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Empty {
+        @Setup(Level.Invocation)
+        public void clear(IndexingBenchmark bench) throws IOException {
+            Files.deleteIfExists(bench.catalogue);
+            Files.deleteIfExists(bench.binaryIndex);
+            Files.deleteIfExists(bench.manifest);
+        }
+    }
+
+    @Benchmark
+    public long fullIndex(Empty empty) throws IOException {
+        return index();
+    }
+
+    @Benchmark
+    public long upToDate() throws IOException {
+        return index();
+    }
+
+    private long index() throws IOException {
+        int processors = Runtime.getRuntime().availableProcessors();
+        DocumentPokemon.index(imageDir, catalogue, binaryIndex, manifest, processors, processors * 2);
+        return Files.size(manifest);
+    }
+}
@@ -0,0 +1,67 @@
+package com.mycompany.app.service;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the direct raster scan in ImagePixelParser.colorStats with the generic getRGB path.
+ * Sizes cover in-game sprites (96), HOME renders (256) and official artwork (475).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RasterScanBenchmark {
+
+    @Param({"96", "256", "475"})
+    public int size;
+
+    @Param({"INT_ARGB", "4BYTE_ABGR", "BYTE_INDEXED"})
+    public String type;
+
+    private BufferedImage image;
+
+    @Setup
+    public void setUp() {
+        image = SyntheticSprites.sprite(size, imageType(type), 7);
+    }
+
+    @Benchmark
+    public ColorStats fastPath() {
+        return ImagePixelParser.colorStats(image);
+    }
+
+    @Benchmark
+    public ColorStats genericPath() {
+        return ImagePixelParser.genericColorStats(image);
+    }
+
+    static int imageType(String name) {
+        switch (name) {
+            case "INT_ARGB":
+                return BufferedImage.TYPE_INT_ARGB;
+            case "4BYTE_ABGR":
+                return BufferedImage.TYPE_4BYTE_ABGR;
+            case "3BYTE_BGR":
+                return BufferedImage.TYPE_3BYTE_BGR;
+            case "BYTE_INDEXED":
+                return BufferedImage.TYPE_BYTE_INDEXED;
+            default:
+                throw new IllegalArgumentException("Unknown image type: " + name);
+        }
+    }
+}
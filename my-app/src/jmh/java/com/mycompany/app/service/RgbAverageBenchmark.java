@@ -0,0 +1,81 @@
+package com.mycompany.app.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end cost of ImagePixelParser.rgbAverage on a PNG: reading the file, decoding and
+ * scanning. The decoded image type follows the PNG color type, so 4BYTE_ABGR, 3BYTE_BGR
+ * and BYTE_INDEXED sources exercise the three raster fast paths. decodeOnly isolates the
+ * share ImageIO takes; run with -prof gc to see the bytes each decode allocates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RgbAverageBenchmark {
+
+    @Param({"96", "256", "475"})
+    public int size;
+
+    @Param({"4BYTE_ABGR", "3BYTE_BGR", "BYTE_INDEXED"})
+    public String type;
+
+    private Path file;
+    private byte[] png;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(SyntheticSprites.sprite(size, RasterScanBenchmark.imageType(type), 11), "png", out);
+        png = out.toByteArray();
+        file = Files.createTempFile("rgb-average-bench", ".png");
+        Files.write(file, png);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /** What rgbAverage does, minus its fixed image directory: stream and decode the file, then the scan. */
+    @Benchmark
+    public String rgbAverage() throws IOException {
+        try (InputStream in = ImageSource.file(file).open()) {
+            return ImagePixelParser.colorStats(in).toRgbString();
+        }
+    }
+
+    @Benchmark
+    public ColorStats colorStatsFromBytes() throws IOException {
+        return ImagePixelParser.colorStats(new ByteArrayInputStream(png));
+    }
+
+    @Benchmark
+    public Object decodeOnly() throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(png));
+    }
+}
@@ -0,0 +1,28 @@
+package com.mycompany.app.service;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * Sprite-like benchmark inputs: a few flat color blobs on a transparent background.
+ */
+final class SyntheticSprites {
+    private SyntheticSprites() {
+    }
+
+    static BufferedImage sprite(int size, int type, long seed) {
+        Random random = new Random(seed);
+        BufferedImage image = new BufferedImage(size, size, type);
+        Graphics2D g = image.createGraphics();
+        for (int i = 0; i < 4; i++) {
+            g.setColor(new Color(random.nextInt(0x1000000)));
+            int x = random.nextInt(size / 2);
+            int y = random.nextInt(size / 2);
+            g.fillOval(x, y, size / 2, size / 2);
+        }
+        g.dispose();
+        return image;
+    }
+}
@@ -1,12 +1,13 @@
 package com.mycompany.app;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Stack;
 
 import com.mycompany.app.service.DocumentPokemon;
 import com.mycompany.app.service.ImagePixelParser;
+import com.mycompany.app.service.MatchServer;
+import com.mycompany.app.service.ShardSpec;
 
 public class App {
 
@@ -16,23 +17,29 @@ public class App {
 
         System.out.println(ImagePixelParser.rgbAverage("metapod.png"));
 
-        // Check if documentPokemon has been run before, if not run it once
-        try {
-            File flagFile = new File("documentPokemon.flag");
-            if (!flagFile.exists()) {
-                System.out.println("Running documentPokemon() for the first time...");
-                DocumentPokemon.initializePokemon();
-                
-                // Create flag file to indicate it's been run
-                flagFile.createNewFile();
-                System.out.println("documentPokemon() completed and won't run again.");
-            } else {
-                System.out.println("documentPokemon() has been run before, skipping...");
-            }
-        } catch (IOException e) {
-            System.err.println("Error managing documentPokemon flag file: " + e.getMessage());
+        // Bring the image catalogue up to date; only new or changed images are decoded.
+        // "index <source> [--shard i/n]" indexes a directory, a .zip or .tar archive, or - for
+        // paths on stdin, optionally only shard i of n; "merge <n>" combines the n shards
+        System.out.println("Updating the Pokemon image catalogue...");
+        if (args.length > 1 && args[0].equals("merge")) {
+            DocumentPokemon.mergeShards(Integer.parseInt(args[1]));
+        } else if (args.length > 1 && args[0].equals("index")) {
+            int processors = Runtime.getRuntime().availableProcessors();
+            ShardSpec shard = args.length > 3 && args[2].equals("--shard") ? ShardSpec.parse(args[3]) : ShardSpec.ALL;
+            DocumentPokemon.initializePokemon(args[1], shard, processors, processors * 2);
+        } else {
+            DocumentPokemon.initializePokemon();
         }
 
+        // "serve [port]" keeps answering match queries over HTTP until the process is stopped
+        if (args.length > 0 && args[0].equals("serve")) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : MatchServer.DEFAULT_PORT;
+            try {
+                new MatchServer(port, DocumentPokemon.BINARY_INDEX_PATH).start();
+            } catch (IOException e) {
+                System.err.println("Could not start the match server: " + e.getMessage());
+            }
+        }
     }
 
 
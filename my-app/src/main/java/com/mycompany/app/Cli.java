@@ -0,0 +1,232 @@
+package com.mycompany.app;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.mycompany.app.service.ColorIndex;
+import com.mycompany.app.service.ColorMatcher;
+import com.mycompany.app.service.ColorMetric;
+import com.mycompany.app.service.ColorStats;
+import com.mycompany.app.service.DocumentPokemon;
+import com.mycompany.app.service.ImagePixelParser;
+import com.mycompany.app.service.ImageSource;
+import com.mycompany.app.service.Palette;
+import com.mycompany.app.service.ShardSpec;
+
+/**
+ * Headless command-line entry point for scripts and pipelines.
+ *
+ * <pre>
+ * index &lt;source&gt; [--shard i/n] [--workers n]   update the catalogue from a directory, archive or - (paths on stdin)
+ * merge &lt;n&gt;                                    merge the partial catalogues of n shards
+ * match &lt;color&gt;... [--k n] [--metric name]     nearest images in image_info.bin, one tab-separated line each
+ * stats &lt;image&gt;...                            average color, size and palette of image files
+ * &#64;&lt;file&gt;                                     run the commands in the file, one per line, in this JVM
+ * </pre>
+ *
+ * Unlike App it skips the demo averages and never loads the viewer or anything in Swing,
+ * and it runs with java.awt.headless=true so decoding never starts a display toolkit. The
+ * exit status is 0 on success, 1 when a command failed and 2 on a usage error. Short calls
+ * are dominated by JVM startup; the appcds Maven profile builds a class data sharing
+ * archive that takes most of it away.
+ */
+public class Cli {
+    static final int OK = 0;
+    static final int FAILED = 1;
+    static final int USAGE = 2;
+
+    public static void main(String[] args) {
+        // Before any AWT class initializes
+        System.setProperty("java.awt.headless", "true");
+        int status = run(Arrays.asList(args), System.out, System.err);
+        System.out.flush();
+        if (status != OK) {
+            System.exit(status);
+        }
+    }
+
+    static int run(List<String> args, PrintStream out, PrintStream err) {
+        if (args.isEmpty()) {
+            usage(err);
+            return USAGE;
+        }
+        String command = args.get(0);
+        List<String> rest = args.subList(1, args.size());
+        try {
+            if (command.startsWith("@")) {
+                return batch(Paths.get(command.substring(1)), out, err);
+            }
+            switch (command) {
+                case "index":
+                    return index(rest);
+                case "merge":
+                    return merge(rest);
+                case "match":
+                    return match(rest, out, err);
+                case "stats":
+                    return stats(rest, out, err);
+                default:
+                    err.println("Unknown command: " + command);
+                    usage(err);
+                    return USAGE;
+            }
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            return USAGE;
+        } catch (IOException e) {
+            err.println(command + " failed: " + e.getMessage());
+            return FAILED;
+        }
+    }
+
+    // Blank lines and # comments are skipped; stops at the first command that fails
+    private static int batch(Path file, PrintStream out, PrintStream err) throws IOException {
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            int status = run(Arrays.asList(trimmed.split("\\s+")), out, err);
+            if (status != OK) {
+                return status;
+            }
+        }
+        return OK;
+    }
+
+    private static int index(List<String> args) {
+        String source = null;
+        ShardSpec shard = ShardSpec.ALL;
+        int workers = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.size(); i++) {
+            String arg = args.get(i);
+            if (arg.equals("--shard")) {
+                shard = ShardSpec.parse(value(args, ++i, arg));
+            } else if (arg.equals("--workers")) {
+                workers = positive(value(args, ++i, arg), arg);
+            } else if (source == null) {
+                source = arg;
+            } else {
+                throw new IllegalArgumentException("index takes one source, got " + source + " and " + arg);
+            }
+        }
+        if (source == null) {
+            throw new IllegalArgumentException("index needs a source: a directory, a .zip or .tar archive, or -");
+        }
+        return DocumentPokemon.initializePokemon(source, shard, workers, workers * 2) ? OK : FAILED;
+    }
+
+    private static int merge(List<String> args) {
+        if (args.size() != 1) {
+            throw new IllegalArgumentException("merge needs the number of shards");
+        }
+        return DocumentPokemon.mergeShards(positive(args.get(0), "merge")) ? OK : FAILED;
+    }
+
+    private static int match(List<String> args, PrintStream out, PrintStream err) throws IOException {
+        List<Integer> colors = new ArrayList<>();
+        int k = 1;
+        ColorMetric metric = ColorMetric.RGB;
+        Path indexFile = DocumentPokemon.BINARY_INDEX_PATH;
+        for (int i = 0; i < args.size(); i++) {
+            String arg = args.get(i);
+            if (arg.equals("--k")) {
+                k = positive(value(args, ++i, arg), arg);
+            } else if (arg.equals("--metric")) {
+                metric = ColorMetric.parse(value(args, ++i, arg));
+            } else if (arg.equals("--index")) {
+                indexFile = Paths.get(value(args, ++i, arg));
+            } else {
+                colors.add(ColorMatcher.parseColor(arg));
+            }
+        }
+        if (colors.isEmpty()) {
+            throw new IllegalArgumentException("match needs at least one color, e.g. R120G200B90 or #78c85a");
+        }
+
+        ColorIndex index = ColorIndex.open(indexFile);
+        ColorMatcher matcher = ColorMatcher.fromIndex(index);
+        if (matcher.size() == 0) {
+            err.println("No images with an average color in " + indexFile);
+            return FAILED;
+        }
+        for (int rgb : colors) {
+            for (ColorMatcher.Match match : matcher.match(rgb, k, metric)) {
+                out.println(ColorMatcher.toRgbString(rgb) + "\t" + index.name(match.getId()) + "\t"
+                    + ColorMatcher.toRgbString(match.getRgb()) + "\t"
+                    + Math.round(match.getDistance() * 1000) / 1000.0);
+            }
+        }
+        return OK;
+    }
+
+    // One line per file: name, average, size, opaque pixels and the palette with weights
+    private static int stats(List<String> args, PrintStream out, PrintStream err) {
+        if (args.isEmpty()) {
+            throw new IllegalArgumentException("stats needs at least one image file");
+        }
+        int status = OK;
+        for (String file : args) {
+            ColorStats stats;
+            try (InputStream in = ImageSource.file(Paths.get(file)).open()) {
+                stats = ImagePixelParser.colorStats(in);
+            } catch (IOException e) {
+                err.println(file + ": " + e.getMessage());
+                status = FAILED;
+                continue;
+            }
+            if (stats == null) {
+                err.println(file + ": unsupported image format");
+                status = FAILED;
+                continue;
+            }
+            StringBuilder line = new StringBuilder(file)
+                .append('\t').append(stats.hasAverage() ? stats.toRgbString() : "-")
+                .append('\t').append(stats.getWidth()).append('x').append(stats.getHeight())
+                .append('\t').append(stats.getOpaquePixels());
+            Palette palette = stats.getPalette();
+            for (int i = 0; i < palette.size(); i++) {
+                line.append('\t').append(ColorMatcher.toRgbString(palette.color(i)))
+                    .append(':').append(Math.round(palette.weight(i) * 1000) / 1000.0);
+            }
+            out.println(line);
+        }
+        return status;
+    }
+
+    private static String value(List<String> args, int i, String option) {
+        if (i >= args.size()) {
+            throw new IllegalArgumentException(option + " needs a value");
+        }
+        return args.get(i);
+    }
+
+    private static int positive(String value, String option) {
+        try {
+            int number = Integer.parseInt(value);
+            if (number > 0) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException(option + " needs a positive number, got " + value);
+    }
+
+    private static void usage(PrintStream err) {
+        err.println("Usage: Cli <command> [arguments]");
+        err.println("  index <source> [--shard i/n] [--workers n]  directory, .zip/.tar archive, or - for paths on stdin");
+        err.println("  merge <n>                                   merge the partial catalogues of n shards");
+        err.println("  match <color>... [--k n] [--metric name] [--index file]");
+        err.println("  stats <image>...");
+        err.println("  @<file>                                     run one command per line of the file");
+    }
+}
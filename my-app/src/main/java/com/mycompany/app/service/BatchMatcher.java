@@ -0,0 +1,260 @@
+package com.mycompany.app.service;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Matches many colors at once: every sample of an ARGB array or image, or the average
+ * color of every tile of a frame.
+ *
+ * Work is split into chunks that run in parallel. Within a chunk each distinct color is
+ * looked up once; screenshots and sprite frames repeat a handful of colors thousands of
+ * times, so most samples are answered from that memo instead of the tree. Like
+ * rgbAverage, only fully opaque samples are matched; the rest get id -1.
+ */
+public class BatchMatcher {
+    /** Samples per parallel task. */
+    private static final int CHUNK_SIZE = 1 << 14;
+
+    private final ColorMatcher matcher;
+
+    public BatchMatcher(ColorMatcher matcher) {
+        this.matcher = matcher;
+    }
+
+    /** Id of the closest indexed color for each ARGB sample, or -1 for samples that are not opaque. */
+    public int[] nearest(int[] argb, ColorMetric metric) {
+        int[] ids = new int[argb.length];
+        int chunks = (argb.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            ColorMemo memo = new ColorMemo();
+            int end = Math.min(argb.length, (chunk + 1) * CHUNK_SIZE);
+            for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+                ids[i] = lookup(argb[i], metric, memo);
+            }
+        });
+        return ids;
+    }
+
+    /** Id of the closest indexed color for each pixel of the image, in row-major order. */
+    public int[] nearest(BufferedImage image, ColorMetric metric) {
+        int[] pixels = backingPixels(image);
+        if (pixels == null) {
+            return nearest(image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth()), metric);
+        }
+        int opaque = opaqueMask(image);
+        int[] ids = new int[pixels.length];
+        int chunks = (pixels.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            ColorMemo memo = new ColorMemo();
+            int end = Math.min(pixels.length, (chunk + 1) * CHUNK_SIZE);
+            for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+                ids[i] = lookup(pixels[i] | opaque, metric, memo);
+            }
+        });
+        return ids;
+    }
+
+    /**
+     * Averages the opaque pixels of each tileSize x tileSize tile (smaller at the right and
+     * bottom edges) and matches each average. Tiles without opaque pixels get id -1.
+     */
+    public TileMatches nearestPerTile(BufferedImage image, int tileSize, ColorMetric metric) {
+        if (tileSize < 1) {
+            throw new IllegalArgumentException("tileSize must be positive");
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int columns = (width + tileSize - 1) / tileSize;
+        int rows = (height + tileSize - 1) / tileSize;
+        int[] backing = backingPixels(image);
+        int[] pixels = backing != null ? backing
+            : image.getRGB(0, 0, width, height, null, 0, width);
+        int opaque = backing != null ? opaqueMask(image) : 0;
+        int[] averages = new int[columns * rows];
+        int[] ids = new int[columns * rows];
+
+        // One task per row of tiles: average every tile in the band, then match them
+        IntStream.range(0, rows).parallel().forEach(row -> {
+            ColorMemo memo = new ColorMemo();
+            long[] red = new long[columns];
+            long[] green = new long[columns];
+            long[] blue = new long[columns];
+            int[] count = new int[columns];
+            for (int y = row * tileSize, yEnd = Math.min(height, y + tileSize); y < yEnd; y++) {
+                for (int column = 0, x = 0; column < columns; column++) {
+                    long tileRed = 0;
+                    long tileGreen = 0;
+                    long tileBlue = 0;
+                    int tileCount = 0;
+                    for (int i = y * width + x, end = y * width + Math.min(width, x + tileSize); i < end; i++) {
+                        int pixel = pixels[i] | opaque;
+                        if ((pixel >>> 24) == 255) {
+                            tileRed += (pixel >> 16) & 0xff;
+                            tileGreen += (pixel >> 8) & 0xff;
+                            tileBlue += pixel & 0xff;
+                            tileCount++;
+                        }
+                    }
+                    red[column] += tileRed;
+                    green[column] += tileGreen;
+                    blue[column] += tileBlue;
+                    count[column] += tileCount;
+                    x += tileSize;
+                }
+            }
+            for (int column = 0; column < columns; column++) {
+                int tile = row * columns + column;
+                if (count[column] == 0) {
+                    ids[tile] = -1;
+                    continue;
+                }
+                int n = count[column];
+                int average = (int) (red[column] / n) << 16 | (int) (green[column] / n) << 8 | (int) (blue[column] / n);
+                averages[tile] = average;
+                ids[tile] = lookup(0xff000000 | average, metric, memo);
+            }
+        });
+        return new TileMatches(tileSize, columns, rows, averages, ids);
+    }
+
+    private int lookup(int argb, ColorMetric metric, ColorMemo memo) {
+        if ((argb >>> 24) != 255) {
+            return -1;
+        }
+        int rgb = argb & 0xffffff;
+        int id = memo.get(rgb);
+        if (id == ColorMemo.ABSENT) {
+            id = matcher.nearest(rgb, metric);
+            memo.put(rgb, id);
+        }
+        return id;
+    }
+
+    /**
+     * The image's own pixel array when it is a plain INT_ARGB or INT_RGB image whose raster
+     * starts at the first element and has no row padding, so frames are read without a
+     * copy. Null for anything else.
+     */
+    private static int[] backingPixels(BufferedImage image) {
+        int type = image.getType();
+        if (type != BufferedImage.TYPE_INT_ARGB && type != BufferedImage.TYPE_INT_RGB) {
+            return null;
+        }
+        WritableRaster raster = image.getRaster();
+        if (!(raster.getDataBuffer() instanceof DataBufferInt)
+                || !(raster.getSampleModel() instanceof SinglePixelPackedSampleModel)
+                || raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0
+                || raster.getDataBuffer().getOffset() != 0
+                || ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride() != image.getWidth()) {
+            return null;
+        }
+        int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+        return data.length == image.getWidth() * image.getHeight() ? data : null;
+    }
+
+    // INT_RGB pixels carry no alpha byte; OR-ing this in makes them opaque
+    private static int opaqueMask(BufferedImage image) {
+        return image.getType() == BufferedImage.TYPE_INT_RGB ? 0xff000000 : 0;
+    }
+
+    /**
+     * Best match per tile, row-major: tile (column, row) is at index row * columns + column.
+     */
+    public static class TileMatches {
+        private final int tileSize;
+        private final int columns;
+        private final int rows;
+        private final int[] averages;
+        private final int[] ids;
+
+        TileMatches(int tileSize, int columns, int rows, int[] averages, int[] ids) {
+            this.tileSize = tileSize;
+            this.columns = columns;
+            this.rows = rows;
+            this.averages = averages;
+            this.ids = ids;
+        }
+
+        public int getTileSize() {
+            return tileSize;
+        }
+
+        public int getColumns() {
+            return columns;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        /** Average color of the tile's opaque pixels as 0xRRGGBB (0 when it has none). */
+        public int average(int column, int row) {
+            return averages[row * columns + column];
+        }
+
+        /** Id of the closest indexed color to the tile's average, or -1 when it has no opaque pixels. */
+        public int id(int column, int row) {
+            return ids[row * columns + column];
+        }
+
+        /** Ids of all tiles, row-major; a new array. */
+        public int[] getIds() {
+            return ids.clone();
+        }
+    }
+
+    /**
+     * Fixed-size open-addressing map from 0xRRGGBB to id. When it fills up it is cleared,
+     * which only costs a few repeated lookups on very colorful input.
+     */
+    private static final class ColorMemo {
+        static final int ABSENT = Integer.MIN_VALUE;
+        private static final int CAPACITY_BITS = 12;
+        private static final int CAPACITY = 1 << CAPACITY_BITS;
+        private static final int MAX_SIZE = CAPACITY / 2;
+        private static final int EMPTY = -1; // no 0xRRGGBB key is negative
+
+        private final int[] keys = new int[CAPACITY];
+        private final int[] values = new int[CAPACITY];
+        private int size;
+
+        ColorMemo() {
+            Arrays.fill(keys, EMPTY);
+        }
+
+        int get(int rgb) {
+            for (int slot = slot(rgb);; slot = (slot + 1) & (CAPACITY - 1)) {
+                int key = keys[slot];
+                if (key == rgb) {
+                    return values[slot];
+                }
+                if (key == EMPTY) {
+                    return ABSENT;
+                }
+            }
+        }
+
+        void put(int rgb, int id) {
+            if (size == MAX_SIZE) {
+                Arrays.fill(keys, EMPTY);
+                size = 0;
+            }
+            int slot = slot(rgb);
+            while (keys[slot] != EMPTY) {
+                slot = (slot + 1) & (CAPACITY - 1);
+            }
+            keys[slot] = rgb;
+            values[slot] = id;
+            size++;
+        }
+
+        private static int slot(int rgb) {
+            return (rgb * 0x9e3779b1) >>> (32 - CAPACITY_BITS); // Fibonacci hashing
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.mycompany.app.service;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Writes image_info.json one image at a time, so memory use does not grow with the catalogue.
+ *
+ * The document keeps the schema the Python matcher reads:
+ * {"generatedAt": ..., "images": [{fileName, filePath, fileSize, width, height, rgbAverage,
+ * linearRgbAverage, labAverage, palette, histogram}, ...], "totalImages": n}
+ * where palette is a list of {"rgb": "R#G#B#", "weight": share of opaque pixels}, heaviest first,
+ * and histogram is the 64-bin ColorHistogram signature.
+ * It is written to a temporary file next to the target and only moved into place by
+ * commit, so readers never see a half written catalogue. Closing without committing, for
+ * example when indexing fails part way, deletes the temporary file and leaves the previous
+ * catalogue untouched.
+ */
+public class CatalogueWriter implements Closeable {
+    private final Path target;
+    private final Path tempFile;
+    private final Writer out;
+    private final JsonWriter json;
+    private int totalImages;
+    private boolean committed;
+
+    public CatalogueWriter(Path target) throws IOException {
+        this.target = target.toAbsolutePath();
+        this.tempFile = this.target.resolveSibling(this.target.getFileName() + ".tmp");
+        FileChannel channel = FileChannel.open(tempFile,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.out = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), 64 * 1024);
+        this.json = new JsonWriter(out);
+        json.setIndent("  ");
+        json.beginObject();
+        json.name("generatedAt").value(new Date().toString());
+        json.name("images").beginArray();
+    }
+
+    /** Appends one image entry to the catalogue. */
+    public void write(ImageRecord record) throws IOException {
+        json.beginObject();
+        json.name("fileName").value(record.getFileName());
+        json.name("filePath").value(record.getFilePath());
+        json.name("fileSize").value(record.getFileSize());
+        ColorStats stats = record.getStats();
+        if (stats != null) {
+            json.name("width").value(stats.getWidth());
+            json.name("height").value(stats.getHeight());
+            String rgbData = stats.toRgbString();
+            if (rgbData != null) {
+                json.name("rgbAverage").value(rgbData);
+                json.name("linearRgbAverage").beginArray()
+                    .value(round(stats.getLinearRed(), 10000))
+                    .value(round(stats.getLinearGreen(), 10000))
+                    .value(round(stats.getLinearBlue(), 10000))
+                    .endArray();
+                json.name("labAverage").beginArray()
+                    .value(round(stats.getLabL(), 100))
+                    .value(round(stats.getLabA(), 100))
+                    .value(round(stats.getLabB(), 100))
+                    .endArray();
+                Palette palette = stats.getPalette();
+                json.name("palette").beginArray();
+                for (int i = 0; i < palette.size(); i++) {
+                    int color = palette.color(i);
+                    json.beginObject();
+                    json.name("rgb").value("R" + ((color >> 16) & 0xff) + "G" + ((color >> 8) & 0xff) + "B" + (color & 0xff));
+                    json.name("weight").value(round(palette.weight(i), 1000));
+                    json.endObject();
+                }
+                json.endArray();
+                json.name("histogram").beginArray();
+                for (float bin : stats.getSignature()) {
+                    json.value(round(bin, 10000));
+                }
+                json.endArray();
+            }
+        }
+        json.endObject();
+        totalImages++;
+    }
+
+    public int getTotalImages() {
+        return totalImages;
+    }
+
+    /** Finishes the document and moves it over the target file. */
+    public void commit() throws IOException {
+        json.endArray();
+        json.name("totalImages").value(totalImages);
+        json.endObject();
+        json.close();
+        Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        committed = true;
+    }
+
+    /** Discards the temporary file unless the catalogue was committed. */
+    @Override
+    public void close() throws IOException {
+        if (committed) {
+            return;
+        }
+        // JsonWriter refuses to close an unfinished document, so close what is under it
+        try {
+            out.close();
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private static double round(float value, int scale) {
+        return Math.round(value * scale) / (double) scale;
+    }
+}
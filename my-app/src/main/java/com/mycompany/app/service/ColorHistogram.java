@@ -0,0 +1,46 @@
+package com.mycompany.app.service;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Fixed-size color histogram signatures: 4x4x4 bins over sRGB, counting only fully opaque
+ * pixels, normalized so the bins of an image with any opaque pixel sum to 1.
+ *
+ * Normalizing makes sprites of different sizes comparable; an image without opaque
+ * pixels has an all-zero signature.
+ */
+public final class ColorHistogram {
+    public static final int BINS_PER_CHANNEL = 4;
+    public static final int SIZE = BINS_PER_CHANNEL * BINS_PER_CHANNEL * BINS_PER_CHANNEL;
+
+    private ColorHistogram() {
+    }
+
+    /** Bin of an 0xRRGGBB color: the top 2 bits of each channel. */
+    public static int binOf(int rgb) {
+        return ((rgb >> 18) & 0x30) | ((rgb >> 12) & 0x0c) | ((rgb >> 6) & 0x03);
+    }
+
+    /** Bin holding a 5-bit palette histogram cell, see {@link PaletteExtractor#cellOf}. */
+    static int binOfCell(int cell) {
+        return ((cell >> 9) & 0x30) | ((cell >> 6) & 0x0c) | ((cell >> 3) & 0x03);
+    }
+
+    /** Signature of the whole image, as stored in the catalogue. */
+    public static float[] of(BufferedImage image) {
+        ColorStats stats = ImagePixelParser.colorStats(image);
+        return stats.getSignature();
+    }
+
+    /** Signature of a region of the image, for example a piece of a screen capture. */
+    public static float[] of(BufferedImage image, int x, int y, int width, int height) {
+        return of(image.getSubimage(x, y, width, height));
+    }
+
+    /** Signature of an image whose opaque pixels are all one color. */
+    public static float[] ofColor(int rgb) {
+        float[] signature = new float[SIZE];
+        signature[binOf(rgb)] = 1;
+        return signature;
+    }
+}
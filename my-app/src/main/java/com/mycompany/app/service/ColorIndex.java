@@ -0,0 +1,331 @@
+package com.mycompany.app.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+
+/**
+ * Compact binary form of the image catalogue (image_info.bin), read through a memory map.
+ *
+ * Layout, little endian:
+ * <pre>
+ * header  (48 bytes)  magic "PKCI", version, recordCount, recordSize,
+ *                     stringTableOffset (long), stringTableLength (long),
+ *                     signatureOffset (long), signatureBins, reserved
+ * records (recordCount * recordSize bytes), one per image:
+ *                     flags, rgb (0xRRGGBB), width, height, mean Lab L, a, b (floats),
+ *                     nameOffset, nameLength
+ * signatures          recordCount * signatureBins floats, the ColorHistogram of each image
+ *                     in record order, so they can be scanned as one matrix
+ * strings             UTF-8 file names, addressed by nameOffset/nameLength
+ * </pre>
+ * Opening the index maps the file and reads nothing else up front; every accessor reads
+ * straight from the mapped pages, so a matcher process starts without parsing anything.
+ */
+public class ColorIndex {
+    public static final int MAGIC = 0x49434b50; // "PKCI" read as a little endian int
+    public static final int VERSION = 4;
+    public static final int HEADER_SIZE = 48;
+    public static final int RECORD_SIZE = 36;
+
+    /** Set on records whose image had at least one opaque pixel. */
+    public static final int FLAG_HAS_AVERAGE = 1;
+
+    private static final int FLAGS = 0;
+    private static final int RGB = 4;
+    private static final int WIDTH = 8;
+    private static final int HEIGHT = 12;
+    private static final int LAB_L = 16;
+    private static final int LAB_A = 20;
+    private static final int LAB_B = 24;
+    private static final int NAME_OFFSET = 28;
+    private static final int NAME_LENGTH = 32;
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int recordSize;
+    private final int stringTableOffset;
+    private final int signatureOffset;
+    private final int signatureBins;
+
+    private ColorIndex(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a color index file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported color index version " + buffer.getInt(4));
+        }
+        this.size = buffer.getInt(8);
+        this.recordSize = buffer.getInt(12);
+        this.stringTableOffset = (int) buffer.getLong(16);
+        this.signatureOffset = (int) buffer.getLong(32);
+        this.signatureBins = buffer.getInt(40);
+    }
+
+    /** Maps an index file written by {@link #write}. */
+    public static ColorIndex open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new ColorIndex(mapped);
+        }
+    }
+
+    /**
+     * Reads an index file into the heap instead of mapping it. For long running readers:
+     * a mapped file stays mapped until the buffer is collected, which on some platforms
+     * keeps the next {@link #write} from replacing it.
+     */
+    public static ColorIndex load(Path file) throws IOException {
+        return new ColorIndex(ByteBuffer.wrap(Files.readAllBytes(file)));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean hasAverage(int i) {
+        return (buffer.getInt(offset(i) + FLAGS) & FLAG_HAS_AVERAGE) != 0;
+    }
+
+    /** Average color packed as 0xRRGGBB. */
+    public int rgb(int i) {
+        return buffer.getInt(offset(i) + RGB);
+    }
+
+    public int width(int i) {
+        return buffer.getInt(offset(i) + WIDTH);
+    }
+
+    public int height(int i) {
+        return buffer.getInt(offset(i) + HEIGHT);
+    }
+
+    /** Mean CIELAB lightness of the image's opaque pixels. */
+    public float labL(int i) {
+        return buffer.getFloat(offset(i) + LAB_L);
+    }
+
+    public float labA(int i) {
+        return buffer.getFloat(offset(i) + LAB_A);
+    }
+
+    public float labB(int i) {
+        return buffer.getFloat(offset(i) + LAB_B);
+    }
+
+    /** Number of bins in each stored histogram signature. */
+    public int signatureBins() {
+        return signatureBins;
+    }
+
+    /** Copies the histogram signature of image i into out, starting at offset. */
+    public void signature(int i, float[] out, int offset) {
+        offset(i); // bounds check
+        buffer.slice(signatureOffset + i * signatureBins * 4, signatureBins * 4)
+            .order(ByteOrder.LITTLE_ENDIAN)
+            .asFloatBuffer()
+            .get(out, offset, signatureBins);
+    }
+
+    /** File name of the image; decoded from the string table on each call. */
+    public String name(int i) {
+        int record = offset(i);
+        int nameOffset = buffer.getInt(record + NAME_OFFSET);
+        int nameLength = buffer.getInt(record + NAME_LENGTH);
+        byte[] bytes = new byte[nameLength];
+        buffer.get(stringTableOffset + nameOffset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int offset(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("record " + i + " of " + size);
+        }
+        return HEADER_SIZE + i * recordSize;
+    }
+
+    /**
+     * Writes the records to a temporary file next to the target and moves it into place.
+     */
+    public static void write(Path target, Collection<ImageRecord> records) throws IOException {
+        Path file = target.toAbsolutePath();
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+
+        int signatureOffset = HEADER_SIZE + records.size() * RECORD_SIZE;
+        ByteBuffer table = ByteBuffer.allocate(signatureOffset + records.size() * ColorHistogram.SIZE * 4)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        ByteArrayOutputStream strings = new ByteArrayOutputStream();
+        table.position(HEADER_SIZE);
+        for (ImageRecord record : records) {
+            byte[] name = record.getFileName().getBytes(StandardCharsets.UTF_8);
+            putRecord(table, record, strings.size(), name.length);
+            strings.write(name);
+        }
+        for (ImageRecord record : records) {
+            putSignature(table, record);
+        }
+        putHeader(table, records.size(), strings.size());
+        table.rewind();
+
+        try (FileChannel channel = FileChannel.open(tempFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (table.hasRemaining()) {
+                channel.write(table);
+            }
+            ByteBuffer names = ByteBuffer.wrap(strings.toByteArray());
+            while (names.hasRemaining()) {
+                channel.write(names);
+            }
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Writer that takes records one at a time, for when they are not all in memory. */
+    public static Writer writer(Path target) throws IOException {
+        return new Writer(target);
+    }
+
+    private static void putRecord(ByteBuffer out, ImageRecord record, int nameOffset, int nameLength) {
+        ColorStats stats = record.getStats();
+        boolean hasAverage = stats != null && stats.hasAverage();
+        out.putInt(hasAverage ? FLAG_HAS_AVERAGE : 0);
+        out.putInt(hasAverage ? stats.getAverageRgb() : 0);
+        out.putInt(stats == null ? 0 : stats.getWidth());
+        out.putInt(stats == null ? 0 : stats.getHeight());
+        out.putFloat(hasAverage ? stats.getLabL() : 0);
+        out.putFloat(hasAverage ? stats.getLabA() : 0);
+        out.putFloat(hasAverage ? stats.getLabB() : 0);
+        out.putInt(nameOffset);
+        out.putInt(nameLength);
+    }
+
+    private static void putSignature(ByteBuffer out, ImageRecord record) {
+        ColorStats stats = record.getStats();
+        float[] signature = stats == null ? new float[ColorHistogram.SIZE] : stats.getSignature();
+        for (float bin : signature) {
+            out.putFloat(bin);
+        }
+    }
+
+    // Header at the start of the buffer, for count records followed by their signatures and the strings
+    private static void putHeader(ByteBuffer out, int count, int stringsLength) {
+        long signatureOffset = HEADER_SIZE + (long) count * RECORD_SIZE;
+        out.putInt(0, MAGIC);
+        out.putInt(4, VERSION);
+        out.putInt(8, count);
+        out.putInt(12, RECORD_SIZE);
+        out.putLong(16, signatureOffset + (long) count * ColorHistogram.SIZE * 4);
+        out.putLong(24, stringsLength);
+        out.putLong(32, signatureOffset);
+        out.putInt(40, ColorHistogram.SIZE);
+    }
+
+    /**
+     * Streams records into an index file without knowing their number up front.
+     *
+     * Records go straight to the target's temporary file and signatures to a spill file
+     * beside it; commit appends the signatures and the file names, fills in the header and
+     * moves the result into place. Closing without committing deletes both files and leaves
+     * any previous index untouched. Memory use is the file names, not the records. The
+     * output is byte for byte what {@link ColorIndex#write} produces for the same records.
+     */
+    public static final class Writer implements Closeable {
+        private final Path file;
+        private final Path tempFile;
+        private final Path signatureFile;
+        private final FileChannel channel;
+        private final FileChannel signatures;
+        private final ByteBuffer records = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        private final ByteBuffer signatureBuffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        private final ByteArrayOutputStream strings = new ByteArrayOutputStream();
+        private int count;
+        private boolean committed;
+
+        private Writer(Path target) throws IOException {
+            this.file = target.toAbsolutePath();
+            this.tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+            this.signatureFile = file.resolveSibling(file.getFileName() + ".signatures.tmp");
+            this.channel = FileChannel.open(tempFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            this.signatures = FileChannel.open(signatureFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.DELETE_ON_CLOSE);
+            channel.position(HEADER_SIZE);
+        }
+
+        /** Appends one record. */
+        public void write(ImageRecord record) throws IOException {
+            if (records.remaining() < RECORD_SIZE) {
+                drain(records, channel);
+            }
+            if (signatureBuffer.remaining() < ColorHistogram.SIZE * 4) {
+                drain(signatureBuffer, signatures);
+            }
+            byte[] name = record.getFileName().getBytes(StandardCharsets.UTF_8);
+            putRecord(records, record, strings.size(), name.length);
+            putSignature(signatureBuffer, record);
+            strings.write(name);
+            count++;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        /** Finishes the file and moves it over the target. */
+        public void commit() throws IOException {
+            try (channel; signatures) {
+                drain(records, channel);
+                drain(signatureBuffer, signatures);
+                long position = channel.position();
+                for (long copied = 0, size = signatures.size(); copied < size;) {
+                    copied += signatures.transferTo(copied, size - copied, channel);
+                }
+                ByteBuffer names = ByteBuffer.wrap(strings.toByteArray());
+                channel.position(position + signatures.size());
+                while (names.hasRemaining()) {
+                    channel.write(names);
+                }
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                putHeader(header, count, strings.size());
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+        }
+
+        /** Discards the temporary and spill files unless the index was committed. */
+        @Override
+        public void close() throws IOException {
+            if (committed) {
+                return;
+            }
+            try (channel; signatures) {
+                // Closed before deleting, which some platforms require; the spill file
+                // deletes itself on close
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+
+        private static void drain(ByteBuffer buffer, FileChannel to) throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                to.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
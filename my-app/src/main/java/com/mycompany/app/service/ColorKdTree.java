@@ -0,0 +1,290 @@
+package com.mycompany.app.service;
+
+/**
+ * Static 3-d tree over points stored in flat primitive arrays.
+ *
+ * The tree is implicit: points are reordered so that every range [lo, hi) has its
+ * splitting point at the middle slot, with the left half below it and the right half
+ * above it along that slot's axis. Ranges of LEAF_SIZE or fewer points are scanned.
+ */
+final class ColorKdTree {
+    private static final int LEAF_SIZE = 8;
+
+    private final float[] points; // x, y, z per slot, in tree order
+    private final int[] ids;      // caller's id for each slot
+    private final byte[] axes;    // splitting axis of each internal node's middle slot
+    private final int size;
+
+    /**
+     * Builds a tree over the given points (x, y, z interleaved). The arrays are copied.
+     */
+    ColorKdTree(float[] points, int[] ids) {
+        if (points.length != ids.length * 3) {
+            throw new IllegalArgumentException("expected 3 coordinates per id");
+        }
+        this.points = points.clone();
+        this.ids = ids.clone();
+        this.size = ids.length;
+        this.axes = new byte[size];
+        build(0, size);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Collects the k points closest to (x, y, z) into the result, nearest first.
+     */
+    void nearest(float x, float y, float z, Neighbours result) {
+        if (size > 0) {
+            search(0, size, x, y, z, result);
+        }
+    }
+
+    private void search(int lo, int hi, float x, float y, float z, Neighbours result) {
+        if (hi - lo <= LEAF_SIZE) {
+            for (int i = lo; i < hi; i++) {
+                result.offer(distance(i, x, y, z), ids[i]);
+            }
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        int axis = axes[mid];
+        float diff = (axis == 0 ? x : axis == 1 ? y : z) - points[mid * 3 + axis];
+        result.offer(distance(mid, x, y, z), ids[mid]);
+
+        // Visit the side the query falls on first; the other side only if the splitting
+        // plane is closer than the current k-th best
+        if (diff < 0) {
+            search(lo, mid, x, y, z, result);
+            if (diff * diff < result.worst()) {
+                search(mid + 1, hi, x, y, z, result);
+            }
+        } else {
+            search(mid + 1, hi, x, y, z, result);
+            if (diff * diff < result.worst()) {
+                search(lo, mid, x, y, z, result);
+            }
+        }
+    }
+
+    /**
+     * Nearest search under a custom distance. The distance must never be smaller than
+     * weights[axis] * (difference along axis)^2 for any axis, so that splitting planes
+     * remain a valid lower bound for pruning.
+     */
+    void nearest(float x, float y, float z, float[] weights, PointDistance distance, Neighbours result) {
+        if (size > 0) {
+            search(0, size, x, y, z, weights, distance, result);
+        }
+    }
+
+    private void search(int lo, int hi, float x, float y, float z, float[] weights, PointDistance distance,
+            Neighbours result) {
+        if (hi - lo <= LEAF_SIZE) {
+            for (int i = lo; i < hi; i++) {
+                result.offer(distance.squared(points[i * 3], points[i * 3 + 1], points[i * 3 + 2]), ids[i]);
+            }
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        int axis = axes[mid];
+        float diff = (axis == 0 ? x : axis == 1 ? y : z) - points[mid * 3 + axis];
+        float bound = weights[axis] * diff * diff;
+        result.offer(distance.squared(points[mid * 3], points[mid * 3 + 1], points[mid * 3 + 2]), ids[mid]);
+
+        if (diff < 0) {
+            search(lo, mid, x, y, z, weights, distance, result);
+            if (bound < result.worst()) {
+                search(mid + 1, hi, x, y, z, weights, distance, result);
+            }
+        } else {
+            search(mid + 1, hi, x, y, z, weights, distance, result);
+            if (bound < result.worst()) {
+                search(lo, mid, x, y, z, weights, distance, result);
+            }
+        }
+    }
+
+    private float distance(int slot, float x, float y, float z) {
+        int p = slot * 3;
+        float dx = points[p] - x;
+        float dy = points[p + 1] - y;
+        float dz = points[p + 2] - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private void build(int lo, int hi) {
+        if (hi - lo <= LEAF_SIZE) {
+            return;
+        }
+        int axis = widestAxis(lo, hi);
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi - 1, mid, axis);
+        axes[mid] = (byte) axis;
+        build(lo, mid);
+        build(mid + 1, hi);
+    }
+
+    private int widestAxis(int lo, int hi) {
+        int widest = 0;
+        float widestSpread = -1;
+        for (int axis = 0; axis < 3; axis++) {
+            float min = Float.POSITIVE_INFINITY;
+            float max = Float.NEGATIVE_INFINITY;
+            for (int i = lo; i < hi; i++) {
+                float v = points[i * 3 + axis];
+                min = Math.min(min, v);
+                max = Math.max(max, v);
+            }
+            if (max - min > widestSpread) {
+                widestSpread = max - min;
+                widest = axis;
+            }
+        }
+        return widest;
+    }
+
+    // Wirth's selection on [left, right] so that slot k holds the k-th smallest value along
+    // the axis; copes with long runs of equal values, which sprite averages do produce
+    private void select(int left, int right, int k, int axis) {
+        while (left < right) {
+            float pivot = points[k * 3 + axis];
+            int i = left;
+            int j = right;
+            do {
+                while (points[i * 3 + axis] < pivot) {
+                    i++;
+                }
+                while (pivot < points[j * 3 + axis]) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            } while (i <= j);
+            if (j < k) {
+                left = i;
+            }
+            if (k < i) {
+                right = j;
+            }
+        }
+    }
+
+    private void swap(int a, int b) {
+        if (a == b) {
+            return;
+        }
+        int pa = a * 3;
+        int pb = b * 3;
+        for (int c = 0; c < 3; c++) {
+            float t = points[pa + c];
+            points[pa + c] = points[pb + c];
+            points[pb + c] = t;
+        }
+        int id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+    }
+
+    /**
+     * Squared distance from a fixed query to a point.
+     */
+    interface PointDistance {
+        float squared(float px, float py, float pz);
+    }
+
+    /**
+     * Bounded max-heap of the k best (smallest distance) candidates seen so far.
+     */
+    static final class Neighbours {
+        private final float[] distances;
+        private final int[] ids;
+        private int count;
+
+        Neighbours(int k) {
+            distances = new float[k];
+            ids = new int[k];
+        }
+
+        /** Distance of the current k-th best, or infinity while fewer than k were offered. */
+        float worst() {
+            return count < distances.length ? Float.POSITIVE_INFINITY : distances[0];
+        }
+
+        void offer(float distance, int id) {
+            if (count < distances.length) {
+                int i = count++;
+                distances[i] = distance;
+                ids[i] = id;
+                siftUp(i);
+            } else if (distance < distances[0]) {
+                distances[0] = distance;
+                ids[0] = id;
+                siftDown(0);
+            }
+        }
+
+        int size() {
+            return count;
+        }
+
+        /** The single best id, or -1 when nothing was offered. Only meaningful for k == 1. */
+        int best() {
+            return count == 0 ? -1 : ids[0];
+        }
+
+        /** Ids sorted nearest first. Empties the heap. */
+        int[] drainIds() {
+            int[] sorted = new int[count];
+            for (int i = count - 1; i >= 0; i--) {
+                sorted[i] = ids[0];
+                count--;
+                distances[0] = distances[count];
+                ids[0] = ids[count];
+                siftDown(0);
+            }
+            return sorted;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (distances[parent] >= distances[i]) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int left = 2 * i + 1;
+                int largest = i;
+                if (left < count && distances[left] > distances[largest]) {
+                    largest = left;
+                }
+                if (left + 1 < count && distances[left + 1] > distances[largest]) {
+                    largest = left + 1;
+                }
+                if (largest == i) {
+                    return;
+                }
+                swap(i, largest);
+                i = largest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            float d = distances[a];
+            distances[a] = distances[b];
+            distances[b] = d;
+            int id = ids[a];
+            ids[a] = ids[b];
+            ids[b] = id;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.mycompany.app.service;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Nearest-color lookup over the indexed average colors.
+ *
+ * Colors live in k-d trees over flat float arrays, one in RGB and one in CIELAB, so a
+ * query visits a handful of leaves instead of scanning every entry. Results are ids:
+ * positions in the ColorIndex or record list the matcher was built from.
+ *
+ * RGB and ΔE76 searches are exact Euclidean searches in their tree. ΔE94 searches the Lab
+ * tree with the exact ΔE94 distance, pruning with a weighted Euclidean bound that never
+ * exceeds it. ΔE2000 has no such bound, so it re-ranks the closest ΔE76 candidates.
+ */
+public class ColorMatcher {
+    /** ΔE2000 re-ranks this many ΔE76 candidates per requested result (at least 64). */
+    private static final int DELTA_E2000_CANDIDATES_PER_RESULT = 16;
+
+    private final int[] ids;
+    private final int[] rgb;
+    private final float[] lab; // L, a, b per entry
+    private final ColorKdTree rgbTree;
+    private final ColorKdTree labTree;
+
+    /**
+     * Builds a matcher over the given colors (0xRRGGBB); ids[i] is reported for rgb[i].
+     * Lab coordinates are converted from the colors.
+     */
+    public ColorMatcher(int[] ids, int[] rgb) {
+        this(ids, rgb, labOf(rgb));
+    }
+
+    /**
+     * Builds a matcher with explicit Lab coordinates (L, a, b per entry), for example the
+     * mean Lab of each image rather than the Lab of its mean color.
+     */
+    public ColorMatcher(int[] ids, int[] rgb, float[] lab) {
+        if (ids.length != rgb.length || lab.length != rgb.length * 3) {
+            throw new IllegalArgumentException("ids, colors and Lab coordinates must have matching lengths");
+        }
+        this.ids = ids.clone();
+        this.rgb = rgb.clone();
+        this.lab = lab.clone();
+
+        int[] entries = new int[rgb.length];
+        float[] points = new float[rgb.length * 3];
+        for (int i = 0; i < rgb.length; i++) {
+            entries[i] = i;
+            points[i * 3] = (rgb[i] >> 16) & 0xff;
+            points[i * 3 + 1] = (rgb[i] >> 8) & 0xff;
+            points[i * 3 + 2] = rgb[i] & 0xff;
+        }
+        this.rgbTree = new ColorKdTree(points, entries);
+        this.labTree = new ColorKdTree(lab, entries);
+    }
+
+    /** Matcher over every image in the index that has an average color; ids are record numbers. */
+    public static ColorMatcher fromIndex(ColorIndex index) {
+        int count = 0;
+        for (int i = 0; i < index.size(); i++) {
+            if (index.hasAverage(i)) {
+                count++;
+            }
+        }
+        int[] ids = new int[count];
+        int[] rgb = new int[count];
+        float[] lab = new float[count * 3];
+        for (int i = 0, n = 0; i < index.size(); i++) {
+            if (index.hasAverage(i)) {
+                ids[n] = i;
+                rgb[n] = index.rgb(i);
+                lab[n * 3] = index.labL(i);
+                lab[n * 3 + 1] = index.labA(i);
+                lab[n * 3 + 2] = index.labB(i);
+                n++;
+            }
+        }
+        return new ColorMatcher(ids, rgb, lab);
+    }
+
+    /** Matcher over every record that has an average color; ids are list positions. */
+    public static ColorMatcher fromRecords(List<ImageRecord> records) {
+        int[] ids = new int[records.size()];
+        int[] rgb = new int[records.size()];
+        float[] lab = new float[records.size() * 3];
+        int count = 0;
+        for (int i = 0; i < records.size(); i++) {
+            ColorStats stats = records.get(i).getStats();
+            if (stats != null && stats.hasAverage()) {
+                ids[count] = i;
+                rgb[count] = stats.getAverageRgb();
+                lab[count * 3] = stats.getLabL();
+                lab[count * 3 + 1] = stats.getLabA();
+                lab[count * 3 + 2] = stats.getLabB();
+                count++;
+            }
+        }
+        return new ColorMatcher(Arrays.copyOf(ids, count), Arrays.copyOf(rgb, count), Arrays.copyOf(lab, count * 3));
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /** Id of the color closest to rgb (0xRRGGBB) by RGB Euclidean distance, or -1 when empty. */
+    public int nearest(int rgb) {
+        ColorKdTree.Neighbours best = new ColorKdTree.Neighbours(1);
+        rgbTree.nearest((rgb >> 16) & 0xff, (rgb >> 8) & 0xff, rgb & 0xff, best);
+        return best.size() == 0 ? -1 : ids[best.best()];
+    }
+
+    /** Ids of the k closest colors by RGB distance, nearest first. */
+    public int[] nearest(int rgb, int k) {
+        return nearest(rgb, k, ColorMetric.RGB);
+    }
+
+    /** Id of the closest color under the metric, or -1 when empty. */
+    public int nearest(int rgb, ColorMetric metric) {
+        int[] best = nearest(rgb, 1, metric);
+        return best.length == 0 ? -1 : best[0];
+    }
+
+    /** Ids of the k closest colors under the metric, nearest first. Fewer when the matcher holds fewer than k. */
+    public int[] nearest(int rgb, int k, ColorMetric metric) {
+        int[] entries = nearestEntries(rgb, k, metric);
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = ids[entries[i]];
+        }
+        return entries;
+    }
+
+    /** The k closest colors under the metric with their distances, nearest first. */
+    public Match[] match(int rgb, int k, ColorMetric metric) {
+        int[] entries = nearestEntries(rgb, k, metric);
+        float[] queryLab = ColorSpaces.rgbToLab(rgb);
+        float[] entryLab = new float[3];
+        Match[] matches = new Match[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            int entry = entries[i];
+            System.arraycopy(lab, entry * 3, entryLab, 0, 3);
+            matches[i] = new Match(ids[entry], this.rgb[entry], metric.distance(rgb, queryLab, this.rgb[entry], entryLab));
+        }
+        return matches;
+    }
+
+    private int[] nearestEntries(int rgb, int k, ColorMetric metric) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        if (metric == ColorMetric.RGB) {
+            ColorKdTree.Neighbours best = new ColorKdTree.Neighbours(k);
+            rgbTree.nearest((rgb >> 16) & 0xff, (rgb >> 8) & 0xff, rgb & 0xff, best);
+            return best.drainIds();
+        }
+
+        float[] query = ColorSpaces.rgbToLab(rgb);
+        float l = query[0];
+        float a = query[1];
+        float b = query[2];
+        switch (metric) {
+            case DELTA_E76: {
+                ColorKdTree.Neighbours best = new ColorKdTree.Neighbours(k);
+                labTree.nearest(l, a, b, best);
+                return best.drainIds();
+            }
+            case DELTA_E94: {
+                // With the query as reference, ΔE94² >= ΔL² + (Δa² + Δb²) / SC²
+                float sc = 1 + 0.045f * (float) Math.sqrt(a * a + b * b);
+                float[] weights = {1, 1 / (sc * sc), 1 / (sc * sc)};
+                ColorKdTree.Neighbours best = new ColorKdTree.Neighbours(k);
+                labTree.nearest(l, a, b, weights, (pl, pa, pb) -> {
+                    double d = ColorSpaces.deltaE94(l, a, b, pl, pa, pb);
+                    return (float) (d * d);
+                }, best);
+                return best.drainIds();
+            }
+            default: {
+                int candidates = Math.max(64, k * DELTA_E2000_CANDIDATES_PER_RESULT);
+                ColorKdTree.Neighbours nearby = new ColorKdTree.Neighbours(candidates);
+                labTree.nearest(l, a, b, nearby);
+                ColorKdTree.Neighbours best = new ColorKdTree.Neighbours(k);
+                for (int entry : nearby.drainIds()) {
+                    int p = entry * 3;
+                    best.offer((float) ColorSpaces.deltaE2000(l, a, b, lab[p], lab[p + 1], lab[p + 2]), entry);
+                }
+                return best.drainIds();
+            }
+        }
+    }
+
+    /** RGB Euclidean distance between two 0xRRGGBB colors, as the Python matcher computes it. */
+    public static double distance(int rgbA, int rgbB) {
+        int dr = ((rgbA >> 16) & 0xff) - ((rgbB >> 16) & 0xff);
+        int dg = ((rgbA >> 8) & 0xff) - ((rgbB >> 8) & 0xff);
+        int db = (rgbA & 0xff) - (rgbB & 0xff);
+        return Math.sqrt(dr * dr + dg * dg + db * db);
+    }
+
+    /** Parses R#G#B#, rrggbb, #rrggbb or r,g,b into 0xRRGGBB. */
+    public static int parseColor(String text) {
+        String color = text.trim();
+        try {
+            if (color.startsWith("R") && color.contains("G") && color.contains("B")) {
+                int g = color.indexOf('G');
+                int b = color.indexOf('B');
+                return rgb(Integer.parseInt(color.substring(1, g)), Integer.parseInt(color.substring(g + 1, b)),
+                    Integer.parseInt(color.substring(b + 1)));
+            }
+            if (color.contains(",")) {
+                String[] parts = color.split(",");
+                if (parts.length == 3) {
+                    return rgb(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()),
+                        Integer.parseInt(parts[2].trim()));
+                }
+            }
+            String hex = color.startsWith("#") ? color.substring(1) : color;
+            // parseInt alone would also take a sign, as in "-12345"
+            if (hex.length() == 6 && hex.chars().allMatch(c -> Character.digit(c, 16) >= 0)) {
+                return Integer.parseInt(hex, 16);
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Unrecognised color: " + text);
+    }
+
+    private static int rgb(int red, int green, int blue) {
+        if ((red | green | blue) < 0 || red > 255 || green > 255 || blue > 255) {
+            throw new IllegalArgumentException("color channels must be between 0 and 255");
+        }
+        return (red << 16) | (green << 8) | blue;
+    }
+
+    /** Formats 0xRRGGBB as R#G#B#, the catalogue format. */
+    public static String toRgbString(int rgb) {
+        return "R" + ((rgb >> 16) & 0xff) + "G" + ((rgb >> 8) & 0xff) + "B" + (rgb & 0xff);
+    }
+
+    private static float[] labOf(int[] rgb) {
+        float[] lab = new float[rgb.length * 3];
+        for (int i = 0; i < rgb.length; i++) {
+            System.arraycopy(ColorSpaces.rgbToLab(rgb[i]), 0, lab, i * 3, 3);
+        }
+        return lab;
+    }
+
+    /**
+     * One match result: the id, its average color and its distance from the query.
+     */
+    public static class Match {
+        private final int id;
+        private final int rgb;
+        private final double distance;
+
+        public Match(int id, int rgb, double distance) {
+            this.id = id;
+            this.rgb = rgb;
+            this.distance = distance;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        /** Average color of the match as 0xRRGGBB. */
+        public int getRgb() {
+            return rgb;
+        }
+
+        public double getDistance() {
+            return distance;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.mycompany.app.service;
+
+/**
+ * Distance used to rank colors in ColorMatcher.
+ */
+public enum ColorMetric {
+    /** Euclidean distance on 8-bit sRGB channels, what the matcher has always used. */
+    RGB,
+    /** CIE76: Euclidean distance in CIELAB. */
+    DELTA_E76,
+    /** CIE94, graphic arts weights, with the query color as the reference. */
+    DELTA_E94,
+    /** CIEDE2000. */
+    DELTA_E2000;
+
+    /**
+     * Distance between two colors given as 0xRRGGBB values and their Lab coordinates.
+     */
+    public double distance(int rgb1, float[] lab1, int rgb2, float[] lab2) {
+        switch (this) {
+            case RGB:
+                return ColorMatcher.distance(rgb1, rgb2);
+            case DELTA_E76:
+                return ColorSpaces.deltaE76(lab1[0], lab1[1], lab1[2], lab2[0], lab2[1], lab2[2]);
+            case DELTA_E94:
+                return ColorSpaces.deltaE94(lab1[0], lab1[1], lab1[2], lab2[0], lab2[1], lab2[2]);
+            default:
+                return ColorSpaces.deltaE2000(lab1[0], lab1[1], lab1[2], lab2[0], lab2[1], lab2[2]);
+        }
+    }
+
+    /** Parses names such as "rgb", "de76", "deltaE2000" or "DELTA_E94". */
+    public static ColorMetric parse(String name) {
+        String key = name.trim().toLowerCase().replace("_", "").replace("delta", "d");
+        switch (key) {
+            case "rgb":
+                return RGB;
+            case "de76":
+            case "de":
+            case "lab":
+                return DELTA_E76;
+            case "de94":
+                return DELTA_E94;
+            case "de2000":
+            case "de00":
+                return DELTA_E2000;
+            default:
+                throw new IllegalArgumentException("Unknown color metric: " + name);
+        }
+    }
+}
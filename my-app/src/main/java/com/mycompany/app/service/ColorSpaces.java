@@ -0,0 +1,172 @@
+package com.mycompany.app.service;
+
+/**
+ * sRGB to linear RGB and CIELAB conversion, plus the CIE color difference formulas.
+ *
+ * Both non-linear steps go through lookup tables built once: the sRGB transfer curve
+ * has only 256 inputs, and the Lab cube root is interpolated from a table over [0, 1].
+ * Lab values use the D65 white point, matching sRGB.
+ */
+public final class ColorSpaces {
+    // D65 reference white
+    private static final float XN = 0.95047f;
+    private static final float YN = 1.00000f;
+    private static final float ZN = 1.08883f;
+
+    // CIE constants for the linear part of f(t) near black
+    private static final float EPSILON = 216f / 24389f;
+    private static final float KAPPA = 24389f / 27f;
+
+    private static final int CBRT_STEPS = 4096;
+
+    private static final float[] SRGB_TO_LINEAR = new float[256];
+    private static final float[] CBRT = new float[CBRT_STEPS + 2];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            double c = i / 255.0;
+            SRGB_TO_LINEAR[i] = (float) (c <= 0.04045 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4));
+        }
+        for (int i = 0; i < CBRT.length; i++) {
+            CBRT[i] = (float) Math.cbrt((double) i / CBRT_STEPS);
+        }
+    }
+
+    private ColorSpaces() {
+    }
+
+    /** Linear light value in [0, 1] of an 8-bit sRGB channel. */
+    public static float srgbToLinear(int channel) {
+        return SRGB_TO_LINEAR[channel & 0xff];
+    }
+
+    /**
+     * Converts linear RGB in [0, 1] to CIELAB, writing L, a, b into out[0..2].
+     */
+    public static void linearToLab(float red, float green, float blue, float[] out) {
+        float x = (0.4124564f * red + 0.3575761f * green + 0.1804375f * blue) / XN;
+        float y = (0.2126729f * red + 0.7151522f * green + 0.0721750f * blue) / YN;
+        float z = (0.0193339f * red + 0.1191920f * green + 0.9503041f * blue) / ZN;
+        float fx = f(x);
+        float fy = f(y);
+        float fz = f(z);
+        out[0] = 116f * fy - 16f;
+        out[1] = 500f * (fx - fy);
+        out[2] = 200f * (fy - fz);
+    }
+
+    /** CIELAB of an 0xRRGGBB color as a new {L, a, b} array. */
+    public static float[] rgbToLab(int rgb) {
+        float[] lab = new float[3];
+        linearToLab(srgbToLinear(rgb >> 16), srgbToLinear(rgb >> 8), srgbToLinear(rgb), lab);
+        return lab;
+    }
+
+    // Lab companding function, with the cube root read from the table
+    private static float f(float t) {
+        if (t <= EPSILON) {
+            return (KAPPA * t + 16f) / 116f;
+        }
+        if (t >= 1f) {
+            return (float) Math.cbrt(t); // only rounding pushes sRGB colors past white
+        }
+        float scaled = t * CBRT_STEPS;
+        int i = (int) scaled;
+        float fraction = scaled - i;
+        return CBRT[i] + (CBRT[i + 1] - CBRT[i]) * fraction;
+    }
+
+    /** CIE76: Euclidean distance in Lab. */
+    public static double deltaE76(float l1, float a1, float b1, float l2, float a2, float b2) {
+        double dl = l1 - l2;
+        double da = a1 - a2;
+        double db = b1 - b2;
+        return Math.sqrt(dl * dl + da * da + db * db);
+    }
+
+    /**
+     * CIE94 with graphic arts weights. The first color is the reference, so its chroma
+     * sets the chroma and hue weights.
+     */
+    public static double deltaE94(float l1, float a1, float b1, float l2, float a2, float b2) {
+        double dl = l1 - l2;
+        double c1 = Math.sqrt(a1 * a1 + b1 * b1);
+        double c2 = Math.sqrt(a2 * a2 + b2 * b2);
+        double dc = c1 - c2;
+        double da = a1 - a2;
+        double db = b1 - b2;
+        double dh2 = Math.max(0, da * da + db * db - dc * dc);
+        double sc = 1 + 0.045 * c1;
+        double sh = 1 + 0.015 * c1;
+        return Math.sqrt(dl * dl + (dc / sc) * (dc / sc) + dh2 / (sh * sh));
+    }
+
+    /** CIEDE2000, following Sharma, Wu and Dalal (2005). */
+    public static double deltaE2000(float l1, float a1, float b1, float l2, float a2, float b2) {
+        double c1 = Math.sqrt(a1 * a1 + b1 * b1);
+        double c2 = Math.sqrt(a2 * a2 + b2 * b2);
+        double cMean = (c1 + c2) / 2;
+        double cMean7 = Math.pow(cMean, 7);
+        double g = 0.5 * (1 - Math.sqrt(cMean7 / (cMean7 + 6103515625.0))); // 25^7
+
+        double a1p = (1 + g) * a1;
+        double a2p = (1 + g) * a2;
+        double c1p = Math.sqrt(a1p * a1p + b1 * b1);
+        double c2p = Math.sqrt(a2p * a2p + b2 * b2);
+        double h1p = hueDegrees(b1, a1p);
+        double h2p = hueDegrees(b2, a2p);
+
+        double dLp = l2 - l1;
+        double dCp = c2p - c1p;
+        double dhp;
+        if (c1p * c2p == 0) {
+            dhp = 0;
+        } else if (Math.abs(h2p - h1p) <= 180) {
+            dhp = h2p - h1p;
+        } else if (h2p - h1p > 180) {
+            dhp = h2p - h1p - 360;
+        } else {
+            dhp = h2p - h1p + 360;
+        }
+        double dHp = 2 * Math.sqrt(c1p * c2p) * Math.sin(Math.toRadians(dhp / 2));
+
+        double lMean = (l1 + l2) / 2.0;
+        double cpMean = (c1p + c2p) / 2;
+        double hpMean;
+        if (c1p * c2p == 0) {
+            hpMean = h1p + h2p;
+        } else if (Math.abs(h1p - h2p) <= 180) {
+            hpMean = (h1p + h2p) / 2;
+        } else if (h1p + h2p < 360) {
+            hpMean = (h1p + h2p + 360) / 2;
+        } else {
+            hpMean = (h1p + h2p - 360) / 2;
+        }
+
+        double t = 1 - 0.17 * Math.cos(Math.toRadians(hpMean - 30))
+            + 0.24 * Math.cos(Math.toRadians(2 * hpMean))
+            + 0.32 * Math.cos(Math.toRadians(3 * hpMean + 6))
+            - 0.20 * Math.cos(Math.toRadians(4 * hpMean - 63));
+        double dTheta = 30 * Math.exp(-Math.pow((hpMean - 275) / 25, 2));
+        double cpMean7 = Math.pow(cpMean, 7);
+        double rc = 2 * Math.sqrt(cpMean7 / (cpMean7 + 6103515625.0));
+        double lOffset = (lMean - 50) * (lMean - 50);
+        double sl = 1 + 0.015 * lOffset / Math.sqrt(20 + lOffset);
+        double sc = 1 + 0.045 * cpMean;
+        double sh = 1 + 0.015 * cpMean * t;
+        double rt = -Math.sin(Math.toRadians(2 * dTheta)) * rc;
+
+        double lTerm = dLp / sl;
+        double cTerm = dCp / sc;
+        double hTerm = dHp / sh;
+        return Math.sqrt(lTerm * lTerm + cTerm * cTerm + hTerm * hTerm + rt * cTerm * hTerm);
+    }
+
+    private static double hueDegrees(double b, double a) {
+        if (a == 0 && b == 0) {
+            return 0;
+        }
+        double h = Math.toDegrees(Math.atan2(b, a));
+        return h < 0 ? h + 360 : h;
+    }
+}
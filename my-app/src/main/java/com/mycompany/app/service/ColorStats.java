@@ -0,0 +1,154 @@
+package com.mycompany.app.service;
+
+/**
+ * Color statistics computed from a single decoded image.
+ * Only fully opaque pixels (alpha == 255) contribute to the averages, matching rgbAverage.
+ *
+ * Besides the plain sRGB average there are two perceptual means: the average of the
+ * pixels in linear light, and the average of the pixels' CIELAB coordinates. The palette
+ * holds the few dominant colors, for sprites whose average is a blend of none of them, and
+ * the signature is the full color distribution as a normalized {@link ColorHistogram}.
+ */
+public class ColorStats {
+    private final int width;
+    private final int height;
+    private final int opaquePixels;
+    private final int averageRed;
+    private final int averageGreen;
+    private final int averageBlue;
+    private final float linearRed;
+    private final float linearGreen;
+    private final float linearBlue;
+    private final float labL;
+    private final float labA;
+    private final float labB;
+    private final Palette palette;
+    private final float[] signature;
+
+    public ColorStats(int width, int height, int opaquePixels, int averageRed, int averageGreen, int averageBlue,
+            float linearRed, float linearGreen, float linearBlue, float labL, float labA, float labB,
+            Palette palette, float[] signature) {
+        this.width = width;
+        this.height = height;
+        this.opaquePixels = opaquePixels;
+        this.averageRed = averageRed;
+        this.averageGreen = averageGreen;
+        this.averageBlue = averageBlue;
+        this.linearRed = linearRed;
+        this.linearGreen = linearGreen;
+        this.linearBlue = linearBlue;
+        this.labL = labL;
+        this.labA = labA;
+        this.labB = labB;
+        this.palette = palette;
+        this.signature = signature.clone();
+    }
+
+    /**
+     * Stats of an image whose opaque pixels all have the given color, so the perceptual
+     * means and the palette are just that color.
+     */
+    public static ColorStats ofUniformColor(int width, int height, int opaquePixels, int red, int green, int blue) {
+        int rgb = (red << 16) | (green << 8) | blue;
+        float[] lab = ColorSpaces.rgbToLab(rgb);
+        Palette palette = opaquePixels > 0 ? new Palette(new int[] {rgb}, new float[] {1}) : Palette.empty();
+        float[] signature = opaquePixels > 0 ? ColorHistogram.ofColor(rgb) : new float[ColorHistogram.SIZE];
+        return new ColorStats(width, height, opaquePixels, red, green, blue,
+            ColorSpaces.srgbToLinear(red), ColorSpaces.srgbToLinear(green), ColorSpaces.srgbToLinear(blue),
+            lab[0], lab[1], lab[2], palette, signature);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getOpaquePixels() {
+        return opaquePixels;
+    }
+
+    public int getAverageRed() {
+        return averageRed;
+    }
+
+    public int getAverageGreen() {
+        return averageGreen;
+    }
+
+    public int getAverageBlue() {
+        return averageBlue;
+    }
+
+    /** Mean linear-light red in [0, 1]. */
+    public float getLinearRed() {
+        return linearRed;
+    }
+
+    public float getLinearGreen() {
+        return linearGreen;
+    }
+
+    public float getLinearBlue() {
+        return linearBlue;
+    }
+
+    /** Mean CIELAB lightness of the opaque pixels. */
+    public float getLabL() {
+        return labL;
+    }
+
+    public float getLabA() {
+        return labA;
+    }
+
+    public float getLabB() {
+        return labB;
+    }
+
+    /** Mean CIELAB coordinates as a new {L, a, b} array. */
+    public float[] getLab() {
+        return new float[] {labL, labA, labB};
+    }
+
+    /** Dominant colors of the opaque pixels, heaviest first; empty when there are none. */
+    public Palette getPalette() {
+        return palette;
+    }
+
+    /** Histogram signature as a new array of {@link ColorHistogram#SIZE} bins summing to 1, or all zeros. */
+    public float[] getSignature() {
+        return signature.clone();
+    }
+
+    /** Copy of these stats with another palette and signature. */
+    ColorStats withDistribution(Palette palette, float[] signature) {
+        return new ColorStats(width, height, opaquePixels, averageRed, averageGreen, averageBlue,
+            linearRed, linearGreen, linearBlue, labL, labA, labB, palette, signature);
+    }
+
+    /** True when at least one opaque pixel was found, so the averages are meaningful. */
+    public boolean hasAverage() {
+        return opaquePixels > 0;
+    }
+
+    /** Average color packed as 0xRRGGBB. */
+    public int getAverageRgb() {
+        return (averageRed << 16) | (averageGreen << 8) | averageBlue;
+    }
+
+    /** Average formatted as R#G#B#, or null when the image has no opaque pixels. */
+    public String toRgbString() {
+        if (!hasAverage()) {
+            return null;
+        }
+        return "R" + averageRed + "G" + averageGreen + "B" + averageBlue;
+    }
+
+    @Override
+    public String toString() {
+        return "ColorStats[" + width + "x" + height + ", opaque=" + opaquePixels + ", avg=" + toRgbString() + "]";
+    }
+}
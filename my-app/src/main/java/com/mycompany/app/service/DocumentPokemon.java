@@ -1,24 +1,37 @@
 package com.mycompany.app.service;
 
-import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-
-import javax.imageio.ImageIO;
-
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 public class DocumentPokemon {
+    /** Catalogue read by the Python matcher. */
+    public static final Path CATALOGUE_PATH = Paths.get("image_info.json");
+    /** Binary, memory-mappable form of the catalogue, see ColorIndex. */
+    public static final Path BINARY_INDEX_PATH = Paths.get("image_info.bin");
+    /** Per-file sizes, modification times, hashes and stats from the previous run. */
+    public static final Path MANIFEST_PATH = Paths.get("image_manifest.json");
+
+    /**
+     * Brings image_info.json and image_info.bin up to date with the image directory.
+     * Only files that are new or changed since the last run are decoded.
+     */
     public static void initializePokemon(){
+        initializePokemon(Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * Indexes the image directory with the given number of worker threads, keeping
+     * at most maxInFlight decoded images in memory at a time.
+     */
+    public static void initializePokemon(int workers, int maxInFlight){
         // Create a directory path
         String imageDirectoryPath = "src/main/resources/images";
         Path imageDirPath = Paths.get(imageDirectoryPath);
@@ -36,71 +49,248 @@ public class DocumentPokemon {
             }
         }
 
-        // List to store image information
-        List<Map<String, Object>> imageInfoList = new ArrayList<>();
+        index(imageDirPath, CATALOGUE_PATH, BINARY_INDEX_PATH, MANIFEST_PATH, workers, maxInFlight);
+    }
+
+    /**
+     * Brings the catalogue up to date with the images in a source, see ImageSource.open:
+     * a directory tree, a .zip or .tar archive read without extracting it, or "-" for a
+     * list of paths on standard input. Returns false when the run failed.
+     */
+    public static boolean initializePokemon(String source, int workers, int maxInFlight) {
+        return initializePokemon(source, ShardSpec.ALL, workers, maxInFlight);
+    }
+
+    /**
+     * Indexes only the images of one shard of the source into that shard's partial
+     * catalogue, see ShardSpec. Shards can run in separate processes or on separate
+     * machines; mergeShards then writes the final catalogue from the partials. Returns
+     * false when the run failed.
+     */
+    public static boolean initializePokemon(String source, ShardSpec shard, int workers, int maxInFlight) {
+        try (ImageSource images = ImageSource.open(source)) {
+            if (shard.isAll()) {
+                return index(images, shard, CATALOGUE_PATH, BINARY_INDEX_PATH, MANIFEST_PATH, workers, maxInFlight);
+            }
+            return index(images, shard, null, null, shard.partialPath(MANIFEST_PATH), workers, maxInFlight);
+        } catch (IOException e) {
+            System.err.println("Could not open image source " + source + ": " + e.getMessage());
+            return false;
+        }
+    }
 
+    /**
+     * Merges the partial catalogues of shards 0 to count - 1 into image_info.json and
+     * image_info.bin. Returns false when the merge failed.
+     */
+    public static boolean mergeShards(int count) {
+        List<Path> partials = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            partials.add(new ShardSpec(i, count).partialPath(MANIFEST_PATH));
+        }
         try {
-            // List all files in the directory
-            Files.list(imageDirPath)
-                .filter(Files::isRegularFile)
-                .forEach(filePath -> {
-                    File file = filePath.toFile();
-                    String fileName = file.getName().toLowerCase();
-                    
-                    // Check if the file is an image
-                    if (fileName.endsWith(".jpg") || fileName.endsWith(".jpeg") || 
-                        fileName.endsWith(".png") || fileName.endsWith(".gif") || 
-                        fileName.endsWith(".bmp")) {
-                        
-                        try {
-                            // Read image file
-                            BufferedImage img = ImageIO.read(file);
-                            
-                            // Create a map for this image's information
-                            Map<String, Object> imageInfo = new HashMap<>();
-                            imageInfo.put("fileName", file.getName());
-                            imageInfo.put("filePath", file.getAbsolutePath());
-                            imageInfo.put("fileSize", file.length());
-                            
-                            // Add width and height if image was read successfully
-                            if (img != null) {
-                                imageInfo.put("width", img.getWidth());
-                                imageInfo.put("height", img.getHeight());
-                                
-                                // Get RGB average using the ImagePixelParser
-                                String rgbData = ImagePixelParser.rgbAverage(file.getName());
-                                if (rgbData != null) {
-                                    imageInfo.put("rgbAverage", rgbData);
-                                }
-                            }
-                            
-                            // Add to our list
-                            imageInfoList.add(imageInfo);
-                            System.out.println("Processed image: " + fileName);
-                            
-                        } catch (IOException e) {
-                            System.err.println("Error processing image: " + file.getName() + " - " + e.getMessage());
-                        }
+            int total = mergeShards(partials, CATALOGUE_PATH, BINARY_INDEX_PATH);
+            System.out.println("Merged " + count + " shards, " + total + " images");
+            return true;
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Could not merge the shard catalogues: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Writes the catalogue and binary index from partial catalogues in a single streaming
+     * pass: records are read one at a time and go straight into both outputs, so memory
+     * does not grow with the number of images. Every partial must exist before anything is
+     * written, and both outputs are only moved into place once every partial has been read:
+     * a partial that turns out malformed or from another version leaves the previous
+     * catalogue and index as they were. Returns the number of images.
+     */
+    static int mergeShards(List<Path> partials, Path cataloguePath, Path binaryIndexPath) throws IOException {
+        for (Path partial : partials) {
+            if (!Files.isRegularFile(partial)) {
+                throw new IOException("Missing partial catalogue " + partial);
+            }
+        }
+        try (CatalogueWriter catalogue = new CatalogueWriter(cataloguePath);
+                ColorIndex.Writer index = ColorIndex.writer(binaryIndexPath)) {
+            for (Path partial : partials) {
+                IndexManifest.forEachRecord(partial, record -> {
+                    try {
+                        catalogue.write(record);
+                        index.write(record);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
                     }
                 });
-            
-            // Create the final map
-            Map<String, Object> finalMap = new HashMap<>();
-            finalMap.put("images", imageInfoList);
-            finalMap.put("totalImages", imageInfoList.size());
-            finalMap.put("generatedAt", new java.util.Date().toString());
-            
-            // Convert to JSON and write to file
-            Gson gson = new GsonBuilder().setPrettyPrinting().create();
-            String json = gson.toJson(finalMap);
-            
-            try (FileWriter fileWriter = new FileWriter("image_info.json")) {
-                fileWriter.write(json);
-                System.out.println("Successfully wrote information for " + imageInfoList.size() + " images to JSON file");
             }
-            
+            index.commit();
+            catalogue.commit();
+            return catalogue.getTotalImages();
+        }
+    }
+
+    /**
+     * Indexes imageDir and its subdirectories into the given catalogue, binary index and
+     * manifest files. Split out of initializePokemon so benchmarks and tests can index a
+     * directory of their own.
+     */
+    static boolean index(Path imageDirPath, Path cataloguePath, Path binaryIndexPath, Path manifestPath,
+            int workers, int maxInFlight) {
+        try (ImageSource images = ImageSource.directory(imageDirPath)) {
+            return index(images, cataloguePath, binaryIndexPath, manifestPath, workers, maxInFlight);
         } catch (IOException e) {
+            System.err.println("Error listing the image directory: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Indexes every image in the source into the given catalogue, binary index and
+     * manifest files.
+     */
+    static boolean index(ImageSource source, Path cataloguePath, Path binaryIndexPath, Path manifestPath,
+            int workers, int maxInFlight) {
+        return index(source, ShardSpec.ALL, cataloguePath, binaryIndexPath, manifestPath, workers, maxInFlight);
+    }
+
+    /**
+     * Indexes the images of one shard of the source. With a null cataloguePath only the
+     * manifest is written, which is then the shard's partial catalogue.
+     *
+     * Phase timings, latencies and failure counts go to the sinks named by the
+     * pokemon.metrics system property (default log); per-image progress is printed only
+     * when pokemon.progress asks for it, see ProgressReporter. Returns false when the run
+     * failed.
+     */
+    static boolean index(ImageSource source, ShardSpec shard, Path cataloguePath, Path binaryIndexPath,
+            Path manifestPath, int workers, int maxInFlight) {
+        boolean partial = cataloguePath == null;
+        IndexingMetrics metrics = new IndexingMetrics();
+        List<MetricsSink> sinks = metricsSinks();
+        for (MetricsSink sink : sinks) {
+            sink.start(metrics);
+        }
+        try {
+            // List all image files in the source
+            long listStart = System.nanoTime();
+            List<ImageSource.Entry> files = source.list();
+            List<ImageSource.Entry> imageFiles = files.stream()
+                .filter(entry -> isImageFile(entry.getName()))
+                .collect(Collectors.toList());
+            int skipped = files.size() - imageFiles.size();
+            if (!shard.isAll()) {
+                int all = imageFiles.size();
+                imageFiles = imageFiles.stream()
+                    .filter(entry -> shard.contains(entry.getName()))
+                    .collect(Collectors.toList());
+                System.out.println("Shard " + shard + ": " + imageFiles.size() + " of " + all + " images");
+            }
+            metrics.time(IndexingMetrics.Phase.LIST, System.nanoTime() - listStart);
+            metrics.skippedFiles(skipped);
+
+            // Reuse everything the manifest already knows about, decode only new or changed files
+            IndexManifest manifest = IndexManifest.load(manifestPath);
+            List<ImageRecord> unchanged = new ArrayList<>();
+            List<ImageSource.Entry> changed = new ArrayList<>();
+            Set<String> present = new HashSet<>();
+            for (ImageSource.Entry imageFile : imageFiles) {
+                present.add(imageFile.getLocation());
+                ImageRecord previous = manifest.reuse(imageFile);
+                if (previous != null) {
+                    unchanged.add(previous);
+                } else {
+                    // Dropped until it decodes again, so a file that now fails leaves no stale
+                    // record behind: the catalogue and the binary index hold the same images
+                    manifest.remove(imageFile.getLocation());
+                    changed.add(imageFile);
+                }
+            }
+            metrics.unchangedImages(unchanged.size());
+            int removed = manifest.retainAll(present);
+            System.out.println(unchanged.size() + " images unchanged, " + changed.size() + " new or changed, "
+                + removed + " removed" + (skipped > 0 ? ", " + skipped + " non-image files skipped" : ""));
+
+            if (changed.isEmpty() && removed == 0
+                    && (partial || Files.exists(cataloguePath) && Files.exists(binaryIndexPath))) {
+                manifest.save(manifestPath); // keeps touched files from being hashed again next time
+                System.out.println("Image catalogue is up to date.");
+                return true;
+            }
+
+            // Decode and analyse the changed files in parallel, at most maxInFlight images in memory
+            // at once, streaming each finished entry straight into the JSON file and the binary index.
+            // Neither is published until every record is written, so a failure part way leaves both
+            // previous files in place, still matching each other
+            IndexingEngine engine = new IndexingEngine(workers, maxInFlight, metrics);
+            ProgressReporter progress = ProgressReporter.fromSystemProperty(changed.size());
+            // A shard only keeps its manifest; the catalogue is written when the shards are merged
+            long indexStart;
+            try (CatalogueWriter catalogue = partial ? null : new CatalogueWriter(cataloguePath);
+                    ColorIndex.Writer index = partial ? null : ColorIndex.writer(binaryIndexPath)) {
+                long writeStart = System.nanoTime();
+                if (catalogue != null) {
+                    for (ImageRecord record : unchanged) {
+                        catalogue.write(record);
+                        index.write(record);
+                    }
+                }
+                metrics.time(IndexingMetrics.Phase.SERIALIZE, System.nanoTime() - writeStart);
+                IndexingEngine.Report report = engine.index(changed, record -> {
+                    manifest.put(record);
+                    long recordStart = System.nanoTime();
+                    try {
+                        if (catalogue != null) {
+                            catalogue.write(record);
+                            index.write(record);
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    metrics.time(IndexingMetrics.Phase.SERIALIZE, System.nanoTime() - recordStart);
+                    progress.imageDone(record.getFileName());
+                });
+                progress.finish();
+                System.out.println("Indexed " + report);
+                indexStart = System.nanoTime();
+                if (catalogue != null) {
+                    index.commit();
+                    catalogue.commit();
+                    System.out.println("Successfully wrote information for " + catalogue.getTotalImages() + " images to JSON file");
+                }
+            }
+            manifest.save(manifestPath);
+            if (partial) {
+                System.out.println("Saved " + manifest.size() + " records to partial catalogue " + manifestPath);
+            }
+            metrics.time(IndexingMetrics.Phase.SERIALIZE, System.nanoTime() - indexStart);
+            return true;
+
+        } catch (IOException | UncheckedIOException e) {
             System.err.println("Error during file processing or JSON writing: " + e.getMessage());
+            return false;
+        } finally {
+            for (MetricsSink sink : sinks) {
+                sink.publish(metrics);
+            }
         }
     }
+
+    // Sinks named by the pokemon.metrics system property, e.g. "log,prometheus=metrics.prom"
+    private static List<MetricsSink> metricsSinks() {
+        String spec = System.getProperty("pokemon.metrics", "log");
+        try {
+            return MetricsSink.parse(spec);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ignoring pokemon.metrics=" + spec + ": " + e.getMessage());
+            return MetricsSink.parse("log");
+        }
+    }
+
+    static boolean isImageFile(String name) {
+        String fileName = name.toLowerCase();
+        return fileName.endsWith(".jpg") || fileName.endsWith(".jpeg") ||
+            fileName.endsWith(".png") || fileName.endsWith(".gif") ||
+            fileName.endsWith(".bmp");
+    }
 }
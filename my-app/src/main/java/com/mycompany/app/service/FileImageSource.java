@@ -0,0 +1,31 @@
+package com.mycompany.app.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Image source over a fixed list of files on disk, from a directory walk or a path list.
+ */
+class FileImageSource implements ImageSource {
+    private final List<Path> files;
+
+    FileImageSource(List<Path> files) {
+        this.files = files;
+    }
+
+    @Override
+    public List<Entry> list() {
+        List<Entry> entries = new ArrayList<>(files.size());
+        for (Path file : files) {
+            try {
+                entries.add(ImageSource.file(file));
+            } catch (IOException e) {
+                // Deleted or unreadable since it was listed
+                System.err.println("Skipping " + file + ": " + e.getMessage());
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,109 @@
+package com.mycompany.app.service;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ranks indexed images by how closely their color histogram signature matches a query's.
+ *
+ * Signatures are kept in one flat float matrix, one row of {@link ColorHistogram#SIZE}
+ * bins per image, and every query scans all rows. The rows are contiguous and the
+ * per-row loop is branch free, so a scan of 50k signatures takes 2-3 ms without any
+ * index structure (HistogramMatcherBenchmark). Results are ids: positions in the ColorIndex or record
+ * list the matcher was built from.
+ */
+public class HistogramMatcher {
+    private final int[] ids;
+    private final int[] rgb;
+    private final float[] signatures;
+
+    /**
+     * Builds a matcher over the signatures (SIZE floats per entry); ids[i] and its average
+     * color rgb[i] are reported for row i.
+     */
+    public HistogramMatcher(int[] ids, int[] rgb, float[] signatures) {
+        if (ids.length != rgb.length || signatures.length != ids.length * ColorHistogram.SIZE) {
+            throw new IllegalArgumentException("ids, colors and signatures must have matching lengths");
+        }
+        this.ids = ids.clone();
+        this.rgb = rgb.clone();
+        this.signatures = signatures.clone();
+    }
+
+    /** Matcher over every image in the index that has opaque pixels; ids are record numbers. */
+    public static HistogramMatcher fromIndex(ColorIndex index) {
+        int count = 0;
+        for (int i = 0; i < index.size(); i++) {
+            if (index.hasAverage(i)) {
+                count++;
+            }
+        }
+        int[] ids = new int[count];
+        int[] rgb = new int[count];
+        float[] signatures = new float[count * ColorHistogram.SIZE];
+        for (int i = 0, n = 0; i < index.size(); i++) {
+            if (index.hasAverage(i)) {
+                ids[n] = i;
+                rgb[n] = index.rgb(i);
+                index.signature(i, signatures, n * ColorHistogram.SIZE);
+                n++;
+            }
+        }
+        return new HistogramMatcher(ids, rgb, signatures);
+    }
+
+    /** Matcher over every record that has opaque pixels; ids are list positions. */
+    public static HistogramMatcher fromRecords(List<ImageRecord> records) {
+        int[] ids = new int[records.size()];
+        int[] rgb = new int[records.size()];
+        float[] signatures = new float[records.size() * ColorHistogram.SIZE];
+        int count = 0;
+        for (int i = 0; i < records.size(); i++) {
+            ColorStats stats = records.get(i).getStats();
+            if (stats != null && stats.hasAverage()) {
+                ids[count] = i;
+                rgb[count] = stats.getAverageRgb();
+                System.arraycopy(stats.getSignature(), 0, signatures, count * ColorHistogram.SIZE, ColorHistogram.SIZE);
+                count++;
+            }
+        }
+        return new HistogramMatcher(Arrays.copyOf(ids, count), Arrays.copyOf(rgb, count),
+            Arrays.copyOf(signatures, count * ColorHistogram.SIZE));
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /** The k signatures closest to the query under the metric, nearest first. */
+    public ColorMatcher.Match[] match(float[] query, int k, HistogramMetric metric) {
+        if (query.length != ColorHistogram.SIZE) {
+            throw new IllegalArgumentException("query signature must have " + ColorHistogram.SIZE + " bins");
+        }
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        ColorKdTree.Neighbours best = new ColorKdTree.Neighbours(k);
+        for (int entry = 0, offset = 0; entry < ids.length; entry++, offset += ColorHistogram.SIZE) {
+            best.offer(metric.distance(query, signatures, offset), entry);
+        }
+        int[] entries = best.drainIds();
+        ColorMatcher.Match[] matches = new ColorMatcher.Match[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            int entry = entries[i];
+            matches[i] = new ColorMatcher.Match(ids[entry], rgb[entry],
+                metric.distance(query, signatures, entry * ColorHistogram.SIZE));
+        }
+        return matches;
+    }
+
+    /** Ids of the k signatures closest to the query, nearest first. */
+    public int[] nearest(float[] query, int k, HistogramMetric metric) {
+        ColorMatcher.Match[] matches = match(query, k, metric);
+        int[] result = new int[matches.length];
+        for (int i = 0; i < matches.length; i++) {
+            result[i] = matches[i].getId();
+        }
+        return result;
+    }
+}
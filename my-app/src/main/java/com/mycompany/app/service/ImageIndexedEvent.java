@@ -0,0 +1,46 @@
+package com.mycompany.app.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event for one image going through IndexingEngine.analyse. Costs next
+ * to nothing unless a recording is running, e.g. started with
+ * {@code -XX:StartFlightRecording:filename=indexing.jfr}; the event then shows up under
+ * Pokemon / Indexing with the time split per phase.
+ */
+@Name("com.mycompany.app.ImageIndexed")
+@Label("Image Indexed")
+@Category({"Pokemon", "Indexing"})
+@Description("One image read, decoded and analysed by the indexer")
+@StackTrace(false)
+class ImageIndexedEvent extends Event {
+    @Label("File")
+    String fileName;
+
+    @Label("Size")
+    @DataAmount
+    long fileSize;
+
+    @Label("Read")
+    @Timespan
+    long readNanos;
+
+    @Label("Decode")
+    @Timespan
+    long decodeNanos;
+
+    @Label("Analyse")
+    @Timespan
+    long analyseNanos;
+
+    @Label("Outcome")
+    @Description("indexed, unsupported or failed")
+    String outcome;
+}
@@ -1,82 +1,362 @@
 package com.mycompany.app.service;
 
 import java.awt.image.BufferedImage;
-import java.io.File;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Paths;
+import java.util.Iterator;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
 
 public class ImagePixelParser {
 
     public static String rgbAverage(String filename) {
         try {
-            // Step 1: Load the image from file
+            // Step 1: Stream the image from file
             filename = "src/main/resources/images/" + filename; // e.g. "metapod.png" -> "src/main/resources/images/metapod.png"
-            File file = new File(filename); // e.g., "C:/images/picture.png" | cannot be jpg for lack of RGBA, only RGB
-            BufferedImage image = ImageIO.read(file);
+            ColorStats stats;
+            try (InputStream in = ImageSource.file(Paths.get(filename)).open()) {
+                // Step 2: Decode it and compute the stats on the decoded image
+                stats = colorStats(in);
+            }
+            if (stats == null) {
+                System.out.println("Unsupported image format: " + filename);
+                return null;
+            }
+            if (stats.hasAverage()) {
+                return stats.toRgbString(); // Formatting as R#G#B# that can easily be parsed or read by eye
+            }
+            else {
+                System.out.println("No non-transparent pixels found in the image");
+                return null;
+            }
+
+        } catch (IOException e) {
+            System.out.println("Error reading the image file: " + e.getMessage());
+        }
+        return null; // Adhering to compiling requirements, should never reach here due to catch
+    }
+
+    /**
+     * Decodes an image from the stream and computes its color stats.
+     * Returns null when no registered ImageIO reader understands the data.
+     */
+    public static ColorStats colorStats(InputStream in) throws IOException {
+        BufferedImage image = decode(in);
+        return image == null ? null : colorStats(image);
+    }
+
+    /**
+     * Decodes the first image in the stream through an ImageInputStream, reading only as
+     * far into the stream as the decoder needs. Returns null when no registered reader
+     * understands the data. The stream is left open.
+     *
+     * The bytes read are buffered in memory rather than in a temp file, whatever
+     * ImageIO.getUseCache says, without changing that JVM-wide setting for other users.
+     */
+    public static BufferedImage decode(InputStream in) throws IOException {
+        try (ImageInputStream stream = new MemoryCacheImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, true);
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Computes color stats on an already decoded image, so callers that need the
+     * image for anything else (dimensions, display) only decode it once.
+     *
+     * The common PNG layouts (int ARGB/RGB, interleaved byte ABGR/BGR and indexed
+     * palettes) are scanned straight from their backing arrays; anything else goes
+     * through the generic per-pixel getRGB path.
+     */
+    public static ColorStats colorStats(BufferedImage image) {
+        Accumulator acc = new Accumulator();
+        boolean scanned;
+        switch (image.getType()) {
+            case BufferedImage.TYPE_INT_ARGB:
+                scanned = scanIntPacked(image, acc, true);
+                break;
+            case BufferedImage.TYPE_INT_RGB:
+                scanned = scanIntPacked(image, acc, false);
+                break;
+            case BufferedImage.TYPE_4BYTE_ABGR:
+            case BufferedImage.TYPE_3BYTE_BGR:
+                scanned = scanByteInterleaved(image, acc);
+                break;
+            case BufferedImage.TYPE_BYTE_INDEXED:
+            case BufferedImage.TYPE_BYTE_BINARY:
+                scanned = scanIndexed(image, acc);
+                break;
+            default:
+                scanned = false;
+        }
+        if (!scanned) {
+            return genericColorStats(image);
+        }
+        return acc.toStats(image.getWidth(), image.getHeight());
+    }
+
+    /**
+     * Reference implementation that reads every pixel through getRGB and the ColorModel.
+     * Slow, but correct for any image type.
+     */
+    static ColorStats genericColorStats(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        Accumulator acc = new Accumulator();
 
-            int width = image.getWidth();
-            int height = image.getHeight();
+        // Loop through each pixel (row-major order)
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
 
-            // int totalPixels = width * height;
-            int sumRed = 0;
-            int sumGreen = 0;
-            int sumBlue = 0;
-            int nonTransparentPixels = 0;  // Counter for non-transparent pixels
+                // Get the pixel color (ARGB)
+                int pixel = image.getRGB(x, y);
 
-            // System.out.println("Image dimensions: " + width + " x " + height);
+                // Extract the alpha component
+                int alpha = (pixel >> 24) & 0xff;
 
+                if(alpha == 255){ // Ensuring that the pixel is not transparent
+                    acc.addRun(pixel, 1);
+                }
+            }
+        }
+        return acc.toStats(width, height);
+    }
 
-            // Step 2: Loop through each pixel (row-major order)
+    // TYPE_INT_ARGB / TYPE_INT_RGB: one int per pixel, laid out as 0xAARRGGBB
+    private static boolean scanIntPacked(BufferedImage image, Accumulator acc, boolean hasAlpha) {
+        WritableRaster raster = image.getRaster();
+        if (!(raster.getSampleModel() instanceof SinglePixelPackedSampleModel)
+                || !(raster.getDataBuffer() instanceof DataBufferInt)) {
+            return false;
+        }
+        SinglePixelPackedSampleModel sm = (SinglePixelPackedSampleModel) raster.getSampleModel();
+        int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+        int stride = sm.getScanlineStride();
+        int base = raster.getDataBuffer().getOffset()
+            + sm.getOffset(-raster.getSampleModelTranslateX(), -raster.getSampleModelTranslateY());
+        int width = image.getWidth();
+        int height = image.getHeight();
+
+        // Sprites are mostly runs of one flat color, so colors are accumulated once per run
+        // and the per-pixel work is a single compare
+        int opaque = hasAlpha ? 0 : 0xff000000;
+        int current = 0;
+        int run = 0;
+        for (int y = 0; y < height; y++) {
+            int row = base + y * stride;
+            for (int i = row, end = row + width; i < end; i++) {
+                int pixel = data[i] | opaque;
+                if (pixel == current) {
+                    run++;
+                    continue;
+                }
+                acc.addOpaqueRun(current, run);
+                current = pixel;
+                run = 1;
+            }
+        }
+        acc.addOpaqueRun(current, run);
+        return true;
+    }
+
+    // TYPE_4BYTE_ABGR / TYPE_3BYTE_BGR: interleaved bytes, band offsets give the R, G, B(, A) positions
+    private static boolean scanByteInterleaved(BufferedImage image, Accumulator acc) {
+        WritableRaster raster = image.getRaster();
+        if (!(raster.getSampleModel() instanceof ComponentSampleModel)
+                || !(raster.getDataBuffer() instanceof DataBufferByte)
+                || image.isAlphaPremultiplied()) {
+            return false;
+        }
+        ComponentSampleModel sm = (ComponentSampleModel) raster.getSampleModel();
+        byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+        int[] bandOffsets = sm.getBandOffsets();
+        boolean hasAlpha = bandOffsets.length == 4;
+        int redOffset = bandOffsets[0];
+        int greenOffset = bandOffsets[1];
+        int blueOffset = bandOffsets[2];
+        int alphaOffset = hasAlpha ? bandOffsets[3] : 0;
+        int pixelStride = sm.getPixelStride();
+        int stride = sm.getScanlineStride();
+        int base = raster.getDataBuffer().getOffset()
+            - raster.getSampleModelTranslateY() * stride
+            - raster.getSampleModelTranslateX() * pixelStride;
+        int width = image.getWidth();
+        int height = image.getHeight();
+
+        int current = 0;
+        int run = 0;
+        for (int y = 0; y < height; y++) {
+            int row = base + y * stride;
+            for (int i = row, end = row + width * pixelStride; i < end; i += pixelStride) {
+                int alpha = hasAlpha ? data[i + alphaOffset] & 0xff : 0xff;
+                int pixel = (alpha << 24) | ((data[i + redOffset] & 0xff) << 16)
+                    | ((data[i + greenOffset] & 0xff) << 8) | (data[i + blueOffset] & 0xff);
+                if (pixel == current) {
+                    run++;
+                    continue;
+                }
+                acc.addOpaqueRun(current, run);
+                current = pixel;
+                run = 1;
+            }
+        }
+        acc.addOpaqueRun(current, run);
+        return true;
+    }
+
+    // TYPE_BYTE_INDEXED / TYPE_BYTE_BINARY: count palette indices, then fold the counts through the palette
+    private static boolean scanIndexed(BufferedImage image, Accumulator acc) {
+        WritableRaster raster = image.getRaster();
+        if (!(image.getColorModel() instanceof IndexColorModel)
+                || !(raster.getDataBuffer() instanceof DataBufferByte)) {
+            return false;
+        }
+        IndexColorModel palette = (IndexColorModel) image.getColorModel();
+        byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] counts = new int[256];
+
+        if (raster.getSampleModel() instanceof MultiPixelPackedSampleModel) {
+            // 1, 2 or 4 bit indices packed into bytes, most significant bits first
+            MultiPixelPackedSampleModel sm = (MultiPixelPackedSampleModel) raster.getSampleModel();
+            int bits = sm.getPixelBitStride();
+            int mask = (1 << bits) - 1;
+            int stride = sm.getScanlineStride();
+            int tx = raster.getSampleModelTranslateX();
+            int ty = raster.getSampleModelTranslateY();
+            int base = raster.getDataBuffer().getOffset();
+            for (int y = 0; y < height; y++) {
+                int row = base + (y - ty) * stride;
+                int bit = sm.getDataBitOffset() - tx * bits;
+                for (int x = 0; x < width; x++, bit += bits) {
+                    int shift = 8 - bits - (bit & 7);
+                    counts[(data[row + (bit >> 3)] >> shift) & mask]++;
+                }
+            }
+        } else if (raster.getSampleModel() instanceof ComponentSampleModel
+                && ((ComponentSampleModel) raster.getSampleModel()).getNumBands() == 1) {
+            ComponentSampleModel sm = (ComponentSampleModel) raster.getSampleModel();
+            int pixelStride = sm.getPixelStride();
+            int stride = sm.getScanlineStride();
+            int base = raster.getDataBuffer().getOffset() + sm.getBandOffsets()[0]
+                - raster.getSampleModelTranslateY() * stride
+                - raster.getSampleModelTranslateX() * pixelStride;
             for (int y = 0; y < height; y++) {
-                for (int x = 0; x < width; x++) {
-
-                    // Step 3: Get the pixel color (ARGB)
-                    int pixel = image.getRGB(x, y);
-
-                    // Step 4: Extract color components (Alpha, Red, Green, Blue)
-                    int alpha = (pixel >> 24) & 0xff;
-                    int red   = (pixel >> 16) & 0xff;
-                    int green = (pixel >> 8) & 0xff;
-                    int blue  = pixel & 0xff;
-
-                    if(alpha == 255){ // Ensuring that the pixel is not transparent
-                        sumRed += red; 
-                        sumGreen += green; 
-                        sumBlue += blue;
-                        nonTransparentPixels++; // Count this pixel
+                int row = base + y * stride;
+                // Sprites are mostly runs of one index, so count runs instead of bumping
+                // the same counter back to back
+                int run = 0;
+                int current = data[row] & 0xff;
+                for (int i = row, end = row + width * pixelStride; i < end; i += pixelStride) {
+                    int index = data[i] & 0xff;
+                    if (index != current) {
+                        counts[current] += run;
+                        current = index;
+                        run = 0;
                     }
-
-                    // Step 5: Do something with the pixel data (print here)
-                    // System.out.println("Pixel at (" + x + ", " + y + "): "
-                    //                    + "Alpha: " + alpha
-                    //                    + ", Red: " + red
-                    //                    + ", Green: " + green
-                    //                    + ", Blue: " + blue); // Initial code that allowed for live readings to ensure library worked
+                    run++;
                 }
+                counts[current] += run;
             }
+        } else {
+            return false;
+        }
 
-            // Only divide by non-transparent pixels count if there are any
-            if (nonTransparentPixels > 0) {
-                sumRed = sumRed / nonTransparentPixels;
-                sumGreen = sumGreen / nonTransparentPixels;
-                sumBlue =  sumBlue / nonTransparentPixels;
-                return("R" + sumRed + "G" + sumGreen + "B" + sumBlue); // Formatting as R#G#B# that can easily be parsed or read by eye
-            } 
-            else {
-                System.out.println("No non-transparent pixels found in the image");
-                return null;
+        int mapSize = palette.getMapSize();
+        for (int index = 0; index < counts.length; index++) {
+            if (counts[index] == 0 || index >= mapSize) {
+                continue;
             }
-            
-            // System.out.println("Non-transparent pixels: " + nonTransparentPixels + " out of " + totalPixels);
+            acc.addOpaqueRun(palette.getRGB(index), counts[index]);
+        }
+        return true;
+    }
 
-        } catch (IOException e) {
-            System.out.println("Error reading the image file: " + e.getMessage());
+    /**
+     * Running sums for the opaque pixels of one image: 8-bit sRGB, linear light and CIELAB,
+     * plus the 5-bit histogram the dominant palette and the histogram signature come from.
+     */
+    private static final class Accumulator {
+        private final float[] lab = new float[3];
+        private final PaletteExtractor.Histogram histogram = PaletteExtractor.Histogram.forCurrentThread();
+        private long sumRed;
+        private long sumGreen;
+        private long sumBlue;
+        private double sumLinearRed;
+        private double sumLinearGreen;
+        private double sumLinearBlue;
+        private double sumL;
+        private double sumA;
+        private double sumB;
+        private int count;
+
+        /** Adds a run of identical pixels, skipping it unless the color is fully opaque. */
+        void addOpaqueRun(int argb, int pixels) {
+            if ((argb >>> 24) == 255 && pixels > 0) {
+                addRun(argb, pixels);
+            }
+        }
+
+        void addRun(int argb, int pixels) {
+            int red = (argb >> 16) & 0xff;
+            int green = (argb >> 8) & 0xff;
+            int blue = argb & 0xff;
+            sumRed += (long) red * pixels;
+            sumGreen += (long) green * pixels;
+            sumBlue += (long) blue * pixels;
+
+            float linearRed = ColorSpaces.srgbToLinear(red);
+            float linearGreen = ColorSpaces.srgbToLinear(green);
+            float linearBlue = ColorSpaces.srgbToLinear(blue);
+            sumLinearRed += linearRed * pixels;
+            sumLinearGreen += linearGreen * pixels;
+            sumLinearBlue += linearBlue * pixels;
+
+            ColorSpaces.linearToLab(linearRed, linearGreen, linearBlue, lab);
+            sumL += lab[0] * pixels;
+            sumA += lab[1] * pixels;
+            sumB += lab[2] * pixels;
+            histogram.add(argb, pixels);
+            count += pixels;
+        }
+
+        ColorStats toStats(int width, int height) {
+            // Only divide by non-transparent pixels count if there are any
+            if (count == 0) {
+                return new ColorStats(width, height, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+                    Palette.empty(), new float[ColorHistogram.SIZE]);
+            }
+            float[] signature = histogram.signature();
+            return new ColorStats(width, height, count,
+                (int) (sumRed / count), (int) (sumGreen / count), (int) (sumBlue / count),
+                (float) (sumLinearRed / count), (float) (sumLinearGreen / count), (float) (sumLinearBlue / count),
+                (float) (sumL / count), (float) (sumA / count), (float) (sumB / count),
+                histogram.palette(PaletteExtractor.DEFAULT_COLORS), signature);
         }
-        return null; // Adhering to compiling requirements, should never reach here due to catch
     }
 
     // public static void main(String[] args){
     //     System.out.println(rgbAverage("metapod.png"));
     // }
-}
\ No newline at end of file
+}
@@ -0,0 +1,55 @@
+package com.mycompany.app.service;
+
+/**
+ * One indexed image: where it came from plus the stats computed from its pixels.
+ * Stats are null when the file could not be decoded.
+ */
+public class ImageRecord {
+    private final String fileName;
+    private final String filePath;
+    private final long fileSize;
+    private final long lastModified;
+    private final long contentHash;
+    private final ColorStats stats;
+
+    public ImageRecord(String fileName, String filePath, long fileSize, long lastModified, long contentHash,
+            ColorStats stats) {
+        this.fileName = fileName;
+        this.filePath = filePath;
+        this.fileSize = fileSize;
+        this.lastModified = lastModified;
+        this.contentHash = contentHash;
+        this.stats = stats;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    /** Modification time of the file when it was indexed, in epoch milliseconds. */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /** CRC32C of the file contents when it was indexed. */
+    public long getContentHash() {
+        return contentHash;
+    }
+
+    /** Same record with a new modification time, for files that were touched but not changed. */
+    public ImageRecord withLastModified(long lastModified) {
+        return new ImageRecord(fileName, filePath, fileSize, lastModified, contentHash, stats);
+    }
+
+    public ColorStats getStats() {
+        return stats;
+    }
+}
@@ -0,0 +1,152 @@
+package com.mycompany.app.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Where the indexer's images come from: a directory tree, a zip or tar archive read in
+ * place, or a list of file paths. Archives are never extracted; each entry is streamed
+ * straight from the archive file when it is decoded.
+ *
+ * Entries can be opened from any thread and in any order until the source is closed.
+ */
+public interface ImageSource extends Closeable {
+
+    /** Buffer used between the file channel and the ImageIO decoder. */
+    int BUFFER_SIZE = 64 * 1024;
+
+    /** Every regular file in the source, images or not, in a stable order. */
+    List<Entry> list() throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+
+    /**
+     * Opens a source from a command-line style spec: {@code -} reads a list of paths
+     * from standard input, a directory is walked recursively, and .zip, .jar and .tar
+     * files are read as archives.
+     */
+    static ImageSource open(String spec) throws IOException {
+        if (spec.equals("-")) {
+            return pathList(System.in);
+        }
+        Path path = Paths.get(spec);
+        if (Files.isDirectory(path)) {
+            return directory(path);
+        }
+        String name = path.getFileName().toString().toLowerCase();
+        if (name.endsWith(".zip") || name.endsWith(".jar")) {
+            return new ZipImageSource(path);
+        }
+        if (name.endsWith(".tar")) {
+            return new TarImageSource(path);
+        }
+        if (name.endsWith(".tar.gz") || name.endsWith(".tgz")) {
+            throw new IOException("Compressed tar archives cannot be read in place, use an uncompressed .tar: " + spec);
+        }
+        throw new IOException("Not a directory or a supported archive: " + spec);
+    }
+
+    /** Every regular file under dir, walked recursively. */
+    static ImageSource directory(Path dir) throws IOException {
+        try (Stream<Path> walk = Files.walk(dir)) {
+            return new FileImageSource(walk
+                .filter(Files::isRegularFile)
+                .sorted()
+                .collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * Files named one per line in the stream, e.g. the output of find. Blank lines are
+     * ignored; paths that do not exist are reported and left out.
+     */
+    static ImageSource pathList(InputStream in) throws IOException {
+        List<Path> files = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        for (String line; (line = reader.readLine()) != null;) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            Path file = Paths.get(line);
+            if (Files.isRegularFile(file)) {
+                files.add(file);
+            } else {
+                System.err.println("Skipping listed path that is not a file: " + line);
+            }
+        }
+        return new FileImageSource(files);
+    }
+
+    /** A single file on disk, as an entry. */
+    static Entry file(Path path) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        return new Entry(path.getFileName().toString(), path.toAbsolutePath().toString(), attrs.size(),
+                attrs.lastModifiedTime().toMillis()) {
+            @Override
+            public InputStream open() throws IOException {
+                return new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE);
+            }
+        };
+    }
+
+    /**
+     * One file in a source. The location is unique across sources and is what the
+     * manifest and catalogue store as the file path: the absolute path for files on
+     * disk, {@code <archive>!/<entry>} for archive entries.
+     */
+    abstract class Entry {
+        private final String name;
+        private final String location;
+        private final long size;
+        private final long lastModified;
+
+        protected Entry(String name, String location, long size, long lastModified) {
+            this.name = name;
+            this.location = location;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        /** File name without any directory or archive prefix. */
+        public String getName() {
+            return name;
+        }
+
+        public String getLocation() {
+            return location;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        /** Modification time in epoch milliseconds. */
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        /** Buffered stream over the entry's contents. */
+        public abstract InputStream open() throws IOException;
+
+        @Override
+        public String toString() {
+            return location;
+        }
+    }
+}
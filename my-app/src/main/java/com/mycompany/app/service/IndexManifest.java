@@ -0,0 +1,335 @@
+package com.mycompany.app.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * On-disk record of every indexed file: its size, modification time and content hash
+ * next to the stats computed from it. Lets a re-index decode only the files that were
+ * added or changed since the last run, and drop the ones that were deleted.
+ *
+ * A file counts as unchanged when its size and modification time match. When only the
+ * modification time differs the contents are hashed, so touched-but-identical files are
+ * not decoded again.
+ */
+public class IndexManifest {
+    /** Bumped whenever the stored stats change shape, forcing a full re-index. */
+    public static final int VERSION = 5;
+
+    private final Map<String, ImageRecord> records = new LinkedHashMap<>();
+
+    /**
+     * Loads a manifest, or returns an empty one when the file is missing, unreadable
+     * or written by a different version.
+     */
+    public static IndexManifest load(Path file) {
+        IndexManifest manifest = new IndexManifest();
+        try (JsonReader json = new JsonReader(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+            json.beginObject();
+            while (json.hasNext()) {
+                String name = json.nextName();
+                if (name.equals("version")) {
+                    if (json.nextInt() != VERSION) {
+                        System.out.println("Index manifest version changed, re-indexing everything");
+                        return new IndexManifest();
+                    }
+                } else if (name.equals("records")) {
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        manifest.put(readRecord(json));
+                    }
+                    json.endArray();
+                } else {
+                    json.skipValue();
+                }
+            }
+            json.endObject();
+        } catch (NoSuchFileException e) {
+            return manifest;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring unreadable index manifest: " + e.getMessage());
+            return new IndexManifest();
+        }
+        return manifest;
+    }
+
+    /**
+     * Passes the records of a manifest to the consumer one at a time without holding them,
+     * for merging partial catalogues. Unlike load, a file that is missing, unreadable or
+     * written by a different version is an error. Returns how many records there were.
+     */
+    public static int forEachRecord(Path file, Consumer<ImageRecord> consumer) throws IOException {
+        int count = 0;
+        try (JsonReader json = new JsonReader(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+            json.beginObject();
+            while (json.hasNext()) {
+                String name = json.nextName();
+                if (name.equals("version")) {
+                    int version = json.nextInt();
+                    if (version != VERSION) {
+                        throw new IOException(file + " was written by manifest version " + version
+                            + ", expected " + VERSION);
+                    }
+                } else if (name.equals("records")) {
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        consumer.accept(readRecord(json));
+                        count++;
+                    }
+                    json.endArray();
+                } else {
+                    json.skipValue();
+                }
+            }
+            json.endObject();
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new IOException("Malformed manifest " + file + ": " + e.getMessage(), e);
+        }
+        return count;
+    }
+
+    public ImageRecord get(String filePath) {
+        return records.get(filePath);
+    }
+
+    public void put(ImageRecord record) {
+        records.put(record.getFilePath(), record);
+    }
+
+    public ImageRecord remove(String filePath) {
+        return records.remove(filePath);
+    }
+
+    public int size() {
+        return records.size();
+    }
+
+    public Collection<ImageRecord> records() {
+        return records.values();
+    }
+
+    /**
+     * Returns the stored record for the file if it is still current, or null when it has
+     * to be decoded again, including when it can no longer be read. Files that were only
+     * touched get their new modification time.
+     */
+    public ImageRecord reuse(Path path) throws IOException {
+        return reuse(ImageSource.file(path));
+    }
+
+    /** As {@link #reuse(Path)}, for an entry of any image source. */
+    public ImageRecord reuse(ImageSource.Entry entry) {
+        String key = entry.getLocation();
+        ImageRecord previous = records.get(key);
+        if (previous == null) {
+            return null;
+        }
+        if (entry.getSize() != previous.getFileSize()) {
+            return null;
+        }
+        long lastModified = entry.getLastModified();
+        if (lastModified == previous.getLastModified()) {
+            return previous;
+        }
+        try (InputStream in = entry.open()) {
+            if (hash(in) != previous.getContentHash()) {
+                return null;
+            }
+        } catch (IOException e) {
+            // Unreadable now, e.g. deleted after listing: treat it as changed, so decoding
+            // it fails and is counted like any other unreadable image
+            return null;
+        }
+        ImageRecord touched = previous.withLastModified(lastModified);
+        records.put(key, touched);
+        return touched;
+    }
+
+    /** Drops records for files that no longer exist. Returns how many were removed. */
+    public int retainAll(Set<String> filePaths) {
+        int removed = 0;
+        for (Iterator<String> it = records.keySet().iterator(); it.hasNext();) {
+            if (!filePaths.contains(it.next())) {
+                it.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /** Writes the manifest next to the target and moves it into place. */
+    public void save(Path file) throws IOException {
+        Path target = file.toAbsolutePath();
+        Path tempFile = target.resolveSibling(target.getFileName() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8);
+                JsonWriter json = new JsonWriter(out)) {
+            json.beginObject();
+            json.name("version").value(VERSION);
+            json.name("records").beginArray();
+            for (ImageRecord record : records.values()) {
+                writeRecord(json, record);
+            }
+            json.endArray();
+            json.endObject();
+        }
+        Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Content hash stored in the manifest. */
+    public static long hash(byte[] bytes) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, 0, bytes.length);
+        return crc.getValue();
+    }
+
+    /** Content hash of everything left in the stream. */
+    public static long hash(InputStream in) throws IOException {
+        CRC32C crc = new CRC32C();
+        byte[] buffer = new byte[ImageSource.BUFFER_SIZE];
+        for (int n; (n = in.read(buffer)) > 0;) {
+            crc.update(buffer, 0, n);
+        }
+        return crc.getValue();
+    }
+
+    private static void writeRecord(JsonWriter json, ImageRecord record) throws IOException {
+        json.beginObject();
+        json.name("fileName").value(record.getFileName());
+        json.name("filePath").value(record.getFilePath());
+        json.name("fileSize").value(record.getFileSize());
+        json.name("lastModified").value(record.getLastModified());
+        json.name("contentHash").value(record.getContentHash());
+        ColorStats stats = record.getStats();
+        if (stats != null) {
+            json.name("stats").beginArray();
+            json.value(stats.getWidth());
+            json.value(stats.getHeight());
+            json.value(stats.getOpaquePixels());
+            json.value(stats.getAverageRed());
+            json.value(stats.getAverageGreen());
+            json.value(stats.getAverageBlue());
+            json.value(stats.getLinearRed());
+            json.value(stats.getLinearGreen());
+            json.value(stats.getLinearBlue());
+            json.value(stats.getLabL());
+            json.value(stats.getLabA());
+            json.value(stats.getLabB());
+            json.endArray();
+            Palette palette = stats.getPalette();
+            json.name("palette").beginArray();
+            for (int i = 0; i < palette.size(); i++) {
+                json.value(palette.color(i));
+                json.value(palette.weight(i));
+            }
+            json.endArray();
+            json.name("signature").beginArray();
+            for (float bin : stats.getSignature()) {
+                json.value(bin);
+            }
+            json.endArray();
+        }
+        json.endObject();
+    }
+
+    private static ImageRecord readRecord(JsonReader json) throws IOException {
+        String fileName = null;
+        String filePath = null;
+        long fileSize = 0;
+        long lastModified = 0;
+        long contentHash = 0;
+        ColorStats stats = null;
+        Palette palette = Palette.empty();
+        float[] signature = new float[ColorHistogram.SIZE];
+
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "fileName":
+                    fileName = json.nextString();
+                    break;
+                case "filePath":
+                    filePath = json.nextString();
+                    break;
+                case "fileSize":
+                    fileSize = json.nextLong();
+                    break;
+                case "lastModified":
+                    lastModified = json.nextLong();
+                    break;
+                case "contentHash":
+                    contentHash = json.nextLong();
+                    break;
+                case "stats":
+                    if (json.peek() == JsonToken.NULL) {
+                        json.nextNull();
+                        break;
+                    }
+                    json.beginArray();
+                    stats = new ColorStats(json.nextInt(), json.nextInt(), json.nextInt(),
+                        json.nextInt(), json.nextInt(), json.nextInt(),
+                        (float) json.nextDouble(), (float) json.nextDouble(), (float) json.nextDouble(),
+                        (float) json.nextDouble(), (float) json.nextDouble(), (float) json.nextDouble(),
+                        Palette.empty(), new float[ColorHistogram.SIZE]);
+                    json.endArray();
+                    break;
+                case "palette":
+                    palette = readPalette(json);
+                    break;
+                case "signature":
+                    json.beginArray();
+                    for (int bin = 0; bin < ColorHistogram.SIZE; bin++) {
+                        signature[bin] = (float) json.nextDouble();
+                    }
+                    json.endArray();
+                    break;
+                default:
+                    json.skipValue();
+            }
+        }
+        json.endObject();
+        if (filePath == null) {
+            throw new IOException("manifest record without filePath");
+        }
+        if (stats != null) {
+            stats = stats.withDistribution(palette, signature);
+        }
+        return new ImageRecord(fileName, filePath, fileSize, lastModified, contentHash, stats);
+    }
+
+    // Stored flat as [color, weight, color, weight, ...]
+    private static Palette readPalette(JsonReader json) throws IOException {
+        int[] colors = new int[PaletteExtractor.DEFAULT_COLORS];
+        float[] weights = new float[PaletteExtractor.DEFAULT_COLORS];
+        int size = 0;
+        json.beginArray();
+        while (json.hasNext()) {
+            if (size == colors.length) {
+                colors = Arrays.copyOf(colors, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            colors[size] = json.nextInt();
+            weights[size] = (float) json.nextDouble();
+            size++;
+        }
+        json.endArray();
+        return new Palette(Arrays.copyOf(colors, size), Arrays.copyOf(weights, size));
+    }
+}
@@ -0,0 +1,258 @@
+package com.mycompany.app.service;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * Decodes and analyses images on a fixed pool of worker threads.
+ *
+ * At most {@code maxInFlight} images are queued or being decoded at any time: the
+ * submitting thread waits for a result before handing out more work, so the number
+ * of live decoded BufferedImages never exceeds that bound no matter how many files
+ * there are. Results are handed to the sink on the calling thread, one at a time.
+ */
+public class IndexingEngine {
+    private final int workers;
+    private final int maxInFlight;
+    private final IndexingMetrics metrics;
+
+    public IndexingEngine() {
+        this(Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    public IndexingEngine(int workers, int maxInFlight) {
+        this(workers, maxInFlight, new IndexingMetrics());
+    }
+
+    /**
+     * Engine that records phase timings, latencies and failures into the given metrics.
+     * maxInFlight is the memory bound and is honored as given, so it must be at least
+     * workers; a smaller bound would leave workers idle.
+     */
+    public IndexingEngine(int workers, int maxInFlight, IndexingMetrics metrics) {
+        if (workers < 1 || maxInFlight < 1) {
+            throw new IllegalArgumentException("workers and maxInFlight must be positive");
+        }
+        if (maxInFlight < workers) {
+            throw new IllegalArgumentException("maxInFlight (" + maxInFlight + ") must be at least workers ("
+                + workers + ")");
+        }
+        this.workers = workers;
+        this.maxInFlight = maxInFlight;
+        this.metrics = metrics;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public IndexingMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Indexes every entry in the list and passes each successfully read record to the sink.
+     */
+    public Report index(List<ImageSource.Entry> files, Consumer<ImageRecord> sink) {
+        long start = System.nanoTime();
+        int processed = 0;
+        int failed = 0;
+        long peakHeap = usedHeap();
+
+        ExecutorService pool = Executors.newFixedThreadPool(workers, new WorkerThreadFactory());
+        try {
+            CompletionService<ImageRecord> completion = new ExecutorCompletionService<>(pool);
+            int submitted = 0;
+            int inFlight = 0;
+            while (submitted < files.size() || inFlight > 0) {
+                // Keep the pool fed up to the in-flight bound, then wait for a result
+                if (submitted < files.size() && inFlight < maxInFlight) {
+                    ImageSource.Entry file = files.get(submitted++);
+                    completion.submit(() -> analyse(file, metrics));
+                    inFlight++;
+                    continue;
+                }
+
+                ImageRecord record;
+                try {
+                    record = completion.take().get();
+                } catch (ExecutionException e) {
+                    record = null;
+                    System.err.println("Error processing image: " + e.getCause().getMessage());
+                }
+                // Sampled while the other in-flight images are still live
+                peakHeap = Math.max(peakHeap, usedHeap());
+                inFlight--;
+
+                if (record == null) {
+                    failed++;
+                    metrics.imageFailed();
+                } else {
+                    processed++;
+                    sink.accept(record);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Indexing interrupted after " + processed + " images");
+        } finally {
+            pool.shutdownNow();
+        }
+
+        return new Report(processed, failed, System.nanoTime() - start, Math.max(peakHeap, usedHeap()));
+    }
+
+    /**
+     * Reads, decodes and analyses a single file. Returns null when it cannot be read.
+     */
+    public static ImageRecord analyse(Path path) {
+        try {
+            return analyse(ImageSource.file(path), new IndexingMetrics());
+        } catch (IOException e) {
+            System.err.println("Error processing image: " + path.getFileName() + " - " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Streams, decodes and analyses a single entry, timing the read, decode and analyse
+     * phases into the metrics and emitting an ImageIndexedEvent when a flight recording
+     * is running. Returns null when it cannot be read.
+     *
+     * The entry is read once: the decoder pulls bytes through a buffered stream as it
+     * needs them, and whatever it leaves unread is drained afterwards so the content hash
+     * still covers the whole file.
+     */
+    static ImageRecord analyse(ImageSource.Entry entry, IndexingMetrics metrics) {
+        ImageIndexedEvent event = new ImageIndexedEvent();
+        event.begin();
+        long start = System.nanoTime();
+        CRC32C crc = new CRC32C();
+        try {
+            BufferedImage img;
+            long readNanos;
+            long decodeNanos;
+            try (CheckedInputStream in = new CheckedInputStream(entry.open(), crc)) {
+                long opened = System.nanoTime();
+                img = ImagePixelParser.decode(in);
+                long decoded = System.nanoTime();
+                in.transferTo(OutputStream.nullOutputStream());
+                decodeNanos = decoded - opened;
+                readNanos = System.nanoTime() - start - decodeNanos;
+            }
+            long read = System.nanoTime();
+            ColorStats stats = img == null ? null : ImagePixelParser.colorStats(img);
+            long analysed = System.nanoTime();
+
+            metrics.time(IndexingMetrics.Phase.READ, readNanos);
+            metrics.time(IndexingMetrics.Phase.DECODE, decodeNanos);
+            if (img == null) {
+                metrics.unsupportedFormat();
+            } else {
+                metrics.time(IndexingMetrics.Phase.ANALYSE, analysed - read);
+                metrics.imageIndexed(analysed - start);
+            }
+            if (event.shouldCommit()) {
+                event.fileName = entry.getName();
+                event.fileSize = entry.getSize();
+                event.readNanos = readNanos;
+                event.decodeNanos = decodeNanos;
+                event.analyseNanos = analysed - read;
+                event.outcome = img == null ? "unsupported" : "indexed";
+                event.commit();
+            }
+            return new ImageRecord(entry.getName(), entry.getLocation(), entry.getSize(), entry.getLastModified(),
+                crc.getValue(), stats);
+        } catch (IOException e) {
+            System.err.println("Error processing image: " + entry.getName() + " - " + e.getMessage());
+            if (event.shouldCommit()) {
+                event.fileName = entry.getName();
+                event.outcome = "failed";
+                event.commit();
+            }
+            return null;
+        }
+    }
+
+    // Total heap in use right now; the per-pool peaks cannot simply be added, as each
+    // pool reaches its own at a different moment
+    private static long usedHeap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "pokemon-indexer-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * Outcome of one indexing run.
+     */
+    public static class Report {
+        private final int processed;
+        private final int failed;
+        private final long elapsedNanos;
+        private final long peakHeapBytes;
+
+        public Report(int processed, int failed, long elapsedNanos, long peakHeapBytes) {
+            this.processed = processed;
+            this.failed = failed;
+            this.elapsedNanos = elapsedNanos;
+            this.peakHeapBytes = peakHeapBytes;
+        }
+
+        public int getProcessed() {
+            return processed;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Largest total heap use seen during the run, sampled each time a result came in.
+         * A sample can miss a short spike between two results.
+         */
+        public long getPeakHeapBytes() {
+            return peakHeapBytes;
+        }
+
+        public double getImagesPerSecond() {
+            return elapsedNanos == 0 ? 0 : processed * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d images (%d failed) in %.2f s, %.1f images/sec, peak heap %.1f MB",
+                processed, failed, elapsedNanos / 1e9, getImagesPerSecond(), peakHeapBytes / (1024.0 * 1024.0));
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.mycompany.app.service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Where an indexing run spends its time and what it had to leave out.
+ *
+ * Each phase has its own LatencyHistogram of timed calls. READ, DECODE and ANALYSE are
+ * timed per image on the worker threads, so their totals add up across workers and can
+ * exceed the wall-clock time of the run. A separate histogram holds the whole per-image
+ * latency (read through analyse). All methods are safe to call from any thread.
+ */
+public class IndexingMetrics {
+
+    public enum Phase {
+        /** Listing the image source. */
+        LIST,
+        /** Opening an entry, and reading whatever the decoder left unread for the content hash. */
+        READ,
+        /** ImageIO decode, streaming the entry's bytes in as the decoder asks for them. */
+        DECODE,
+        /** Color stats, palette and signature over the decoded pixels. */
+        ANALYSE,
+        /** Writing catalogue entries, the binary index and the manifest. */
+        SERIALIZE;
+
+        /** Lower-case name used in logs and metric labels. */
+        public String label() {
+            return name().toLowerCase();
+        }
+    }
+
+    private final Map<Phase, LatencyHistogram> phases = new EnumMap<>(Phase.class);
+    private final LatencyHistogram imageLatency = new LatencyHistogram();
+    private final LongAdder indexed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder unsupported = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder unchanged = new LongAdder();
+    private final long startNanos = System.nanoTime();
+
+    public IndexingMetrics() {
+        for (Phase phase : Phase.values()) {
+            phases.put(phase, new LatencyHistogram());
+        }
+    }
+
+    public void time(Phase phase, long nanos) {
+        phases.get(phase).record(nanos);
+    }
+
+    /** Records one image that was read, decoded and analysed, with its total latency. */
+    public void imageIndexed(long nanos) {
+        indexed.increment();
+        imageLatency.record(nanos);
+    }
+
+    /** An image that could not be read or analysed. */
+    public void imageFailed() {
+        failed.increment();
+    }
+
+    /** A file with an image extension that no ImageIO reader could decode. */
+    public void unsupportedFormat() {
+        unsupported.increment();
+    }
+
+    /** Files in the image directory left out because of their extension. */
+    public void skippedFiles(int count) {
+        skipped.add(count);
+    }
+
+    /** Images reused from the manifest without being decoded. */
+    public void unchangedImages(int count) {
+        unchanged.add(count);
+    }
+
+    public LatencyHistogram phase(Phase phase) {
+        return phases.get(phase);
+    }
+
+    public LatencyHistogram getImageLatency() {
+        return imageLatency;
+    }
+
+    public long getIndexed() {
+        return indexed.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public long getUnsupported() {
+        return unsupported.sum();
+    }
+
+    public long getSkipped() {
+        return skipped.sum();
+    }
+
+    public long getUnchanged() {
+        return unchanged.sum();
+    }
+
+    /** Wall-clock time since these metrics were created. */
+    public long getElapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /** Multi-line human readable summary, one line per phase. */
+    public String summary() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("Indexing metrics: %d indexed, %d unchanged, %d failed, %d unsupported, "
+            + "%d skipped, %.2f s wall clock%n", getIndexed(), getUnchanged(), getFailed(), getUnsupported(),
+            getSkipped(), getElapsedNanos() / 1e9));
+        for (Phase phase : Phase.values()) {
+            out.append(String.format("  %-9s %s%n", phase.label(), phases.get(phase)));
+        }
+        out.append(String.format("  %-9s %s", "per image", imageLatency));
+        return out.toString();
+    }
+}
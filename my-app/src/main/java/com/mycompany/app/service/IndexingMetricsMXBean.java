@@ -0,0 +1,34 @@
+package com.mycompany.app.service;
+
+/**
+ * Management view of the current or last indexing run, registered by JmxMetricsSink as
+ * {@value JmxMetricsSink#OBJECT_NAME}. Times are in milliseconds.
+ */
+public interface IndexingMetricsMXBean {
+
+    long getImagesIndexed();
+
+    long getImagesFailed();
+
+    long getUnsupportedFormats();
+
+    long getSkippedFiles();
+
+    long getUnchangedImages();
+
+    double getListMillis();
+
+    double getReadMillis();
+
+    double getDecodeMillis();
+
+    double getAnalyseMillis();
+
+    double getSerializeMillis();
+
+    double getImageLatencyP50Millis();
+
+    double getImageLatencyP99Millis();
+
+    double getImageLatencyMaxMillis();
+}
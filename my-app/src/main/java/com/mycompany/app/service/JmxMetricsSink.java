@@ -0,0 +1,117 @@
+package com.mycompany.app.service;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.mycompany.app.service.IndexingMetrics.Phase;
+
+/**
+ * Exposes the metrics of the running indexer as an MXBean on the platform MBean server,
+ * so jconsole or any JMX client can watch a run while it happens. The bean stays
+ * registered after the run and is replaced when the next one starts.
+ */
+public class JmxMetricsSink implements MetricsSink {
+    public static final String OBJECT_NAME = "com.mycompany.app:type=IndexingMetrics";
+
+    @Override
+    public void start(IndexingMetrics metrics) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            try {
+                server.unregisterMBean(name);
+            } catch (InstanceNotFoundException e) {
+                // First run in this JVM
+            }
+            server.registerMBean(new View(metrics), name);
+        } catch (JMException e) {
+            System.err.println("Could not register indexing metrics with JMX: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void publish(IndexingMetrics metrics) {
+        // The registered view reads the live metrics; nothing left to push
+    }
+
+    private static final class View implements IndexingMetricsMXBean {
+        private final IndexingMetrics metrics;
+
+        View(IndexingMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        @Override
+        public long getImagesIndexed() {
+            return metrics.getIndexed();
+        }
+
+        @Override
+        public long getImagesFailed() {
+            return metrics.getFailed();
+        }
+
+        @Override
+        public long getUnsupportedFormats() {
+            return metrics.getUnsupported();
+        }
+
+        @Override
+        public long getSkippedFiles() {
+            return metrics.getSkipped();
+        }
+
+        @Override
+        public long getUnchangedImages() {
+            return metrics.getUnchanged();
+        }
+
+        @Override
+        public double getListMillis() {
+            return millis(metrics.phase(Phase.LIST).getTotalNanos());
+        }
+
+        @Override
+        public double getReadMillis() {
+            return millis(metrics.phase(Phase.READ).getTotalNanos());
+        }
+
+        @Override
+        public double getDecodeMillis() {
+            return millis(metrics.phase(Phase.DECODE).getTotalNanos());
+        }
+
+        @Override
+        public double getAnalyseMillis() {
+            return millis(metrics.phase(Phase.ANALYSE).getTotalNanos());
+        }
+
+        @Override
+        public double getSerializeMillis() {
+            return millis(metrics.phase(Phase.SERIALIZE).getTotalNanos());
+        }
+
+        @Override
+        public double getImageLatencyP50Millis() {
+            return millis(metrics.getImageLatency().percentile(0.5));
+        }
+
+        @Override
+        public double getImageLatencyP99Millis() {
+            return millis(metrics.getImageLatency().percentile(0.99));
+        }
+
+        @Override
+        public double getImageLatencyMaxMillis() {
+            return millis(metrics.getImageLatency().getMaxNanos());
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1e6;
+        }
+    }
+}
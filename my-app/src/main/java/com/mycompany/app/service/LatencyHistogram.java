@@ -0,0 +1,107 @@
+package com.mycompany.app.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe histogram of durations over fixed buckets, 1-2-5 steps from 10 µs to 10 s
+ * plus an overflow bucket. Recording is a bucket search and three atomic adds, cheap
+ * enough to call once per image from every worker.
+ *
+ * The fixed bounds map directly onto Prometheus histogram buckets; percentiles are
+ * interpolated within a bucket, so they are estimates good to the bucket's width.
+ */
+public class LatencyHistogram {
+    /** Upper bounds of the buckets in nanoseconds, inclusive. */
+    private static final long[] BOUNDS = {
+        10_000L, 20_000L, 50_000L,
+        100_000L, 200_000L, 500_000L,
+        1_000_000L, 2_000_000L, 5_000_000L,
+        10_000_000L, 20_000_000L, 50_000_000L,
+        100_000_000L, 200_000_000L, 500_000_000L,
+        1_000_000_000L, 2_000_000_000L, 5_000_000_000L,
+        10_000_000_000L,
+    };
+
+    private final AtomicLongArray counts = new AtomicLongArray(BOUNDS.length + 1);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        int bucket = 0;
+        while (bucket < BOUNDS.length && value > BOUNDS[bucket]) {
+            bucket++;
+        }
+        counts.incrementAndGet(bucket);
+        count.increment();
+        totalNanos.add(value);
+        maxNanos.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Estimated duration below which the given share of samples fall, e.g. 0.99 for p99.
+     * 0 when nothing was recorded.
+     */
+    public long percentile(double quantile) {
+        long[] buckets = bucketCounts();
+        long total = 0;
+        for (long bucketCount : buckets) {
+            total += bucketCount;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        double rank = Math.min(1, Math.max(0, quantile)) * total;
+        long below = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            if (buckets[i] > 0 && below + buckets[i] >= rank) {
+                long lower = i == 0 ? 0 : BOUNDS[i - 1];
+                long upper = i < BOUNDS.length ? BOUNDS[i] : Math.max(lower, getMaxNanos());
+                long estimate = lower + Math.round((upper - lower) * ((rank - below) / buckets[i]));
+                return Math.min(estimate, getMaxNanos());
+            }
+            below += buckets[i];
+        }
+        return getMaxNanos();
+    }
+
+    /** Number of buckets with an upper bound; the overflow bucket comes after them. */
+    static int boundCount() {
+        return BOUNDS.length;
+    }
+
+    /** Upper bound of a bucket in nanoseconds. */
+    static long bound(int bucket) {
+        return BOUNDS[bucket];
+    }
+
+    /** Samples per bucket, the last entry being the overflow bucket; a consistent-enough copy. */
+    long[] bucketCounts() {
+        long[] copy = new long[counts.length()];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = counts.get(i);
+        }
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d samples, total %.1f ms, p50 %.2f ms, p99 %.2f ms, max %.2f ms",
+            getCount(), getTotalNanos() / 1e6, percentile(0.5) / 1e6, percentile(0.99) / 1e6, getMaxNanos() / 1e6);
+    }
+}
@@ -0,0 +1,19 @@
+package com.mycompany.app.service;
+
+import java.io.PrintStream;
+
+/**
+ * Prints the per-phase summary of a run.
+ */
+public class LogMetricsSink implements MetricsSink {
+    private final PrintStream out;
+
+    public LogMetricsSink(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void publish(IndexingMetrics metrics) {
+        out.println(metrics.summary());
+    }
+}
@@ -0,0 +1,232 @@
+package com.mycompany.app.service;
+
+import java.util.Arrays;
+
+/**
+ * Bounded LRU cache of nearest-match results in front of a ColorMatcher.
+ *
+ * Queries are keyed on the color quantized to a number of bits per channel, together with
+ * the metric. With 8 bits the cache is exact; with fewer, every color in a quantization
+ * cell shares the match of the cell's center color, which lets nearly identical cursor
+ * colors hit the same entry.
+ *
+ * Entries live in primitive arrays: a linear-probing table of entry numbers and, per
+ * entry, its key, its result and its neighbours in the recency list. Nothing is
+ * allocated per query. Lookups and updates are synchronized so one cache can serve several
+ * threads.
+ */
+public class MatchCache {
+    private static final int NONE = -1;
+
+    private final ColorMatcher matcher;
+    private final int bits;
+    private final int capacity;
+    private final int mask;
+    private final int hashShift;
+
+    // Hash table: slot -> entry number, or NONE
+    private final int[] slots;
+
+    // Per entry
+    private final int[] keys;
+    private final int[] results;
+    private final int[] newer;
+    private final int[] older;
+
+    private int size;
+    private int newest = NONE;
+    private int oldest = NONE;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param bitsPerChannel 1 to 8 bits kept of each channel
+     * @param capacity       most entries kept before the least recently used is evicted
+     */
+    public MatchCache(ColorMatcher matcher, int bitsPerChannel, int capacity) {
+        if (bitsPerChannel < 1 || bitsPerChannel > 8) {
+            throw new IllegalArgumentException("bitsPerChannel must be between 1 and 8");
+        }
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.matcher = matcher;
+        this.bits = bitsPerChannel;
+        this.capacity = capacity;
+        int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1; // power of two, at most half full
+        this.mask = tableSize - 1;
+        this.hashShift = 32 - Integer.numberOfTrailingZeros(tableSize);
+        this.slots = new int[tableSize];
+        Arrays.fill(slots, NONE);
+        this.keys = new int[capacity];
+        this.results = new int[capacity];
+        this.newer = new int[capacity];
+        this.older = new int[capacity];
+    }
+
+    /** Id of the closest color by RGB distance, as {@link ColorMatcher#nearest(int)}. */
+    public int nearest(int rgb) {
+        return nearest(rgb, ColorMetric.RGB);
+    }
+
+    /**
+     * Id of the closest color under the metric, as {@link ColorMatcher#nearest(int, ColorMetric)}.
+     * Only the table lookup and update hold the lock; a miss is matched outside it, so
+     * threads missing at the same time search in parallel instead of one after another.
+     */
+    public int nearest(int rgb, ColorMetric metric) {
+        int key = (metric.ordinal() << 24) | quantize(rgb);
+        synchronized (this) {
+            int entry = slots[find(key)];
+            if (entry != NONE) {
+                hits++;
+                moveToNewest(entry);
+                return results[entry];
+            }
+            misses++;
+        }
+        int result = matcher.nearest(center(key & 0xffffff), metric);
+        synchronized (this) {
+            put(key, result);
+        }
+        return result;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getBitsPerChannel() {
+        return bits;
+    }
+
+    /** Share of lookups answered from the cache, 0 before the first lookup. */
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("MatchCache[%d/%d entries, %d bits, hits=%d, misses=%d, evictions=%d]",
+            size, capacity, bits, hits, misses, evictions);
+    }
+
+    private int quantize(int rgb) {
+        int drop = 8 - bits;
+        int keep = (0xff >> drop) << drop;
+        int channelMask = (keep << 16) | (keep << 8) | keep;
+        return rgb & channelMask;
+    }
+
+    // Center of a quantization cell, so the cached match does not lean towards one corner
+    private int center(int quantized) {
+        if (bits == 8) {
+            return quantized;
+        }
+        int half = 1 << (7 - bits);
+        return quantized | (half << 16) | (half << 8) | half;
+    }
+
+    // Another thread may have added the same key while this one was matching
+    private void put(int key, int result) {
+        int slot = find(key);
+        int entry = slots[slot];
+        if (entry != NONE) {
+            moveToNewest(entry);
+            return;
+        }
+        if (size == capacity) {
+            entry = oldest;
+            unlink(entry);
+            remove(keys[entry]);
+            evictions++;
+            slot = find(key); // removal may have shifted the probe sequence
+        } else {
+            entry = size++;
+        }
+        keys[entry] = key;
+        results[entry] = result;
+        slots[slot] = entry;
+        linkNewest(entry);
+    }
+
+    // Slot holding the key, or the empty slot where it would go
+    private int find(int key) {
+        int slot = hash(key);
+        while (slots[slot] != NONE && keys[slots[slot]] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int hash(int key) {
+        return (key * 0x9e3779b1) >>> hashShift; // Fibonacci hashing
+    }
+
+    // Linear-probing removal: shift later entries of the probe run back into the gap
+    private void remove(int key) {
+        int gap = find(key);
+        slots[gap] = NONE;
+        for (int slot = (gap + 1) & mask; slots[slot] != NONE; slot = (slot + 1) & mask) {
+            int home = hash(keys[slots[slot]]);
+            // Move the entry if its home is not cyclically within (gap, slot]
+            boolean between = gap <= slot ? (home > gap && home <= slot) : (home > gap || home <= slot);
+            if (!between) {
+                slots[gap] = slots[slot];
+                slots[slot] = NONE;
+                gap = slot;
+            }
+        }
+    }
+
+    private void moveToNewest(int entry) {
+        if (entry != newest) {
+            unlink(entry);
+            linkNewest(entry);
+        }
+    }
+
+    private void linkNewest(int entry) {
+        older[entry] = newest;
+        newer[entry] = NONE;
+        if (newest != NONE) {
+            newer[newest] = entry;
+        }
+        newest = entry;
+        if (oldest == NONE) {
+            oldest = entry;
+        }
+    }
+
+    private void unlink(int entry) {
+        if (older[entry] != NONE) {
+            newer[older[entry]] = newer[entry];
+        } else {
+            oldest = newer[entry];
+        }
+        if (newer[entry] != NONE) {
+            older[newer[entry]] = older[entry];
+        } else {
+            newest = older[entry];
+        }
+    }
+}
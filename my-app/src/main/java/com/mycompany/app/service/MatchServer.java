@@ -0,0 +1,280 @@
+package com.mycompany.app.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.gson.stream.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Small HTTP server on localhost that answers color match queries from the binary index,
+ * so clients do not have to load and scan image_info.json themselves.
+ *
+ * <pre>
+ * GET  /match?rgb=R120G200B90&amp;k=3&amp;metric=de2000   top k for one color
+ * GET  /match?rgb=78c85a&amp;rgb=ff0000&amp;k=3             top k for each color
+ * POST /match?k=3                                    same, one color per line in the body
+ * GET  /health                                       catalogue size and load time
+ * </pre>
+ * Colors may be written as R#G#B# (the catalogue format), rrggbb, #rrggbb or r,g,b.
+ * Metrics are the names ColorMetric.parse accepts; the default is rgb.
+ *
+ * Single best matches go through an exact MatchCache; /health reports its counters.
+ * The index is held in memory as an immutable snapshot. A background check reloads it
+ * whenever image_info.bin is rewritten, and requests keep using the previous snapshot
+ * until the new one is fully built.
+ */
+public class MatchServer {
+    public static final int DEFAULT_PORT = 8765;
+    /** Largest k a request may ask for. */
+    public static final int MAX_RESULTS = 100;
+    private static final long RELOAD_CHECK_MILLIS = 500;
+    /** Single-match results kept per loaded index; exact colors, no quantization. */
+    private static final int CACHE_ENTRIES = 1 << 16;
+
+    static {
+        // Headers and body go out in separate writes; with Nagle on, every response
+        // waits for the client's delayed ACK (~40 ms). Read once when the first server starts.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final Path indexFile;
+    private final HttpServer server;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService reloader;
+    private volatile Snapshot snapshot;
+
+    public MatchServer(int port, Path indexFile) throws IOException {
+        this(port, indexFile, Runtime.getRuntime().availableProcessors());
+    }
+
+    public MatchServer(int port, Path indexFile, int threads) throws IOException {
+        this.indexFile = indexFile.toAbsolutePath();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.workers = Executors.newFixedThreadPool(threads, namedThreads("pokemon-match-"));
+        this.reloader = Executors.newSingleThreadScheduledExecutor(namedThreads("pokemon-match-reload-"));
+        server.setExecutor(workers);
+        server.createContext("/match", this::handleMatch);
+        server.createContext("/health", this::handleHealth);
+    }
+
+    /** Loads the index and starts serving. A missing index is picked up once it is written. */
+    public void start() {
+        reloadIfChanged();
+        reloader.scheduleWithFixedDelay(this::reloadIfChanged, RELOAD_CHECK_MILLIS, RELOAD_CHECK_MILLIS,
+            TimeUnit.MILLISECONDS);
+        server.start();
+        System.out.println("Match server listening on http://" + server.getAddress().getHostString()
+            + ":" + getPort() + "/match");
+    }
+
+    public void stop() {
+        server.stop(0);
+        reloader.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /** Port actually bound, useful when the server was created with port 0. */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /** Number of images in the current snapshot, or -1 before an index was loaded. */
+    public int size() {
+        Snapshot current = snapshot;
+        return current == null ? -1 : current.index.size();
+    }
+
+    /**
+     * Reloads the index if the file changed since the last load. Also runs on the
+     * background check; safe to call from any thread.
+     */
+    public synchronized void reloadIfChanged() {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(indexFile, BasicFileAttributes.class);
+            long modified = attrs.lastModifiedTime().toMillis();
+            Snapshot current = snapshot;
+            if (current != null && current.modified == modified && current.fileSize == attrs.size()) {
+                return;
+            }
+            ColorIndex index = ColorIndex.load(indexFile);
+            snapshot = new Snapshot(index, ColorMatcher.fromIndex(index), modified, attrs.size());
+            System.out.println("Match server loaded " + index.size() + " images from " + indexFile);
+        } catch (NoSuchFileException e) {
+            // Not indexed yet; keep serving whatever was loaded before
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Match server could not reload " + indexFile + ": " + e.getMessage());
+        }
+    }
+
+    private void handleMatch(HttpExchange exchange) throws IOException {
+        try {
+            Snapshot current = snapshot;
+            if (current == null) {
+                respond(exchange, 503, error("catalogue not indexed yet"));
+                return;
+            }
+            List<String> colors = new ArrayList<>();
+            int k = 1;
+            ColorMetric metric = ColorMetric.RGB;
+            String query = exchange.getRequestURI().getRawQuery();
+            if (query != null) {
+                for (String pair : query.split("&")) {
+                    int eq = pair.indexOf('=');
+                    String name = eq < 0 ? pair : pair.substring(0, eq);
+                    String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+                    if (name.equals("rgb")) {
+                        colors.add(value);
+                    } else if (name.equals("k")) {
+                        k = Integer.parseInt(value);
+                    } else if (name.equals("metric")) {
+                        metric = ColorMetric.parse(value);
+                    }
+                }
+            }
+            if (exchange.getRequestMethod().equals("POST")) {
+                try (InputStream body = exchange.getRequestBody()) {
+                    for (String line : new String(body.readAllBytes(), StandardCharsets.UTF_8).split("\\R")) {
+                        if (!line.isBlank()) {
+                            colors.add(line.trim());
+                        }
+                    }
+                }
+            }
+            if (colors.isEmpty()) {
+                respond(exchange, 400, error("no rgb given"));
+                return;
+            }
+            if (k < 1 || k > MAX_RESULTS) {
+                respond(exchange, 400, error("k must be between 1 and " + MAX_RESULTS));
+                return;
+            }
+
+            StringWriter out = new StringWriter();
+            JsonWriter json = new JsonWriter(out);
+            json.beginObject();
+            json.name("results").beginArray();
+            for (String color : colors) {
+                int rgb = ColorMatcher.parseColor(color);
+                json.beginObject();
+                json.name("rgb").value(ColorMatcher.toRgbString(rgb));
+                json.name("matches").beginArray();
+                for (ColorMatcher.Match match : current.match(rgb, k, metric)) {
+                    json.beginObject();
+                    json.name("fileName").value(current.index.name(match.getId()));
+                    json.name("rgbAverage").value(ColorMatcher.toRgbString(match.getRgb()));
+                    json.name("distance").value(Math.round(match.getDistance() * 1000) / 1000.0);
+                    json.endObject();
+                }
+                json.endArray();
+                json.endObject();
+            }
+            json.endArray();
+            json.endObject();
+            json.close();
+            respond(exchange, 200, out.toString());
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, error(e.getMessage()));
+        }
+    }
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        Snapshot current = snapshot;
+        StringWriter out = new StringWriter();
+        JsonWriter json = new JsonWriter(out);
+        json.beginObject();
+        json.name("images").value(current == null ? 0 : current.index.size());
+        json.name("loadedAt").value(current == null ? null : new Date(current.loadedAt).toString());
+        if (current != null) {
+            json.name("cache").beginObject();
+            json.name("size").value(current.cache.size());
+            json.name("hits").value(current.cache.getHits());
+            json.name("misses").value(current.cache.getMisses());
+            json.name("evictions").value(current.cache.getEvictions());
+            json.endObject();
+        }
+        json.endObject();
+        json.close();
+        respond(exchange, current == null ? 503 : 200, out.toString());
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String error(String message) throws IOException {
+        StringWriter out = new StringWriter();
+        JsonWriter json = new JsonWriter(out);
+        json.beginObject().name("error").value(message).endObject();
+        json.close();
+        return out.toString();
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /** One loaded index with the matcher built over it and a cache of its single best matches. */
+    private static final class Snapshot {
+        final ColorIndex index;
+        final ColorMatcher matcher;
+        final MatchCache cache;
+        final long modified;
+        final long fileSize;
+        final long loadedAt = System.currentTimeMillis();
+
+        Snapshot(ColorIndex index, ColorMatcher matcher, long modified, long fileSize) {
+            this.index = index;
+            this.matcher = matcher;
+            this.cache = new MatchCache(matcher, 8, CACHE_ENTRIES);
+            this.modified = modified;
+            this.fileSize = fileSize;
+        }
+
+        // Cursor trackers ask for the one best match of the same few colors over and over
+        ColorMatcher.Match[] match(int rgb, int k, ColorMetric metric) {
+            if (k > 1) {
+                return matcher.match(rgb, k, metric);
+            }
+            int id = cache.nearest(rgb, metric);
+            if (id < 0) {
+                return new ColorMatcher.Match[0];
+            }
+            float[] lab = {index.labL(id), index.labA(id), index.labB(id)};
+            double distance = metric.distance(rgb, ColorSpaces.rgbToLab(rgb), index.rgb(id), lab);
+            return new ColorMatcher.Match[] {new ColorMatcher.Match(id, index.rgb(id), distance)};
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.mycompany.app.service;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Destination for the IndexingMetrics of a run.
+ *
+ * start is called before any work with the metrics the run will fill in, so live views
+ * such as JMX can show progress; publish is called once at the end of the run.
+ */
+public interface MetricsSink {
+
+    /** Called when a run starts, before anything is recorded. */
+    default void start(IndexingMetrics metrics) {
+    }
+
+    /** Called when a run has finished, successfully or not. */
+    void publish(IndexingMetrics metrics);
+
+    /**
+     * Parses a comma-separated list of sinks: {@code log}, {@code jmx},
+     * {@code prometheus} or {@code prometheus=<file>}, or {@code none}.
+     */
+    static List<MetricsSink> parse(String spec) {
+        List<MetricsSink> sinks = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            String name = part.trim();
+            String argument = null;
+            int eq = name.indexOf('=');
+            if (eq >= 0) {
+                argument = name.substring(eq + 1).trim();
+                name = name.substring(0, eq).trim();
+            }
+            switch (name.toLowerCase()) {
+                case "":
+                case "none":
+                    break;
+                case "log":
+                    sinks.add(new LogMetricsSink(System.out));
+                    break;
+                case "jmx":
+                    sinks.add(new JmxMetricsSink());
+                    break;
+                case "prometheus":
+                    sinks.add(new PrometheusMetricsSink(argument == null || argument.isEmpty()
+                        ? PrometheusMetricsSink.DEFAULT_PATH : Paths.get(argument)));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown metrics sink: " + part.trim());
+            }
+        }
+        return sinks;
+    }
+}
@@ -0,0 +1,66 @@
+package com.mycompany.app.service;
+
+import java.util.Arrays;
+
+/**
+ * Dominant colors of an image with the share of opaque pixels each one stands for,
+ * heaviest first.
+ */
+public class Palette {
+    private static final Palette EMPTY = new Palette(new int[0], new float[0]);
+
+    private final int[] colors;
+    private final float[] weights;
+
+    public Palette(int[] colors, float[] weights) {
+        if (colors.length != weights.length) {
+            throw new IllegalArgumentException("one weight per color expected");
+        }
+        this.colors = colors.clone();
+        this.weights = weights.clone();
+    }
+
+    public static Palette empty() {
+        return EMPTY;
+    }
+
+    public int size() {
+        return colors.length;
+    }
+
+    /** Color i as 0xRRGGBB. */
+    public int color(int i) {
+        return colors[i];
+    }
+
+    /** Fraction of the opaque pixels, in [0, 1], represented by color i. */
+    public float weight(int i) {
+        return weights[i];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("Palette[");
+        for (int i = 0; i < colors.length; i++) {
+            if (i > 0) {
+                text.append(", ");
+            }
+            text.append(String.format("#%06x %.2f", colors[i], weights[i]));
+        }
+        return text.append(']').toString();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof Palette)) {
+            return false;
+        }
+        Palette palette = (Palette) other;
+        return Arrays.equals(colors, palette.colors) && Arrays.equals(weights, palette.weights);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(colors) + Arrays.hashCode(weights);
+    }
+}
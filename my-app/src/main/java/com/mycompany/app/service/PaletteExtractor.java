@@ -0,0 +1,246 @@
+package com.mycompany.app.service;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Dominant-color extraction by median cut over a 5-bit-per-channel histogram.
+ *
+ * Pixels are first binned into 32x32x32 cells, so the cut works on at most 32768
+ * populated cells however large the image is. Boxes of cells are then split along their
+ * longest channel at the pixel-weighted median until there are k boxes or nothing left
+ * to split; each box becomes one palette color, the pixel-weighted mean of its cells.
+ */
+public class PaletteExtractor {
+    public static final int DEFAULT_COLORS = 5;
+    public static final int HISTOGRAM_SIZE = 1 << 15;
+
+    private PaletteExtractor() {
+    }
+
+    /** Histogram cell of an 0xRRGGBB color: the top 5 bits of each channel. */
+    public static int cellOf(int rgb) {
+        return ((rgb >> 9) & 0x7c00) | ((rgb >> 6) & 0x03e0) | ((rgb >> 3) & 0x001f);
+    }
+
+    /** Center color of a histogram cell as 0xRRGGBB. */
+    public static int colorOf(int cell) {
+        int red = ((cell >> 10) & 0x1f) << 3 | 4;
+        int green = ((cell >> 5) & 0x1f) << 3 | 4;
+        int blue = (cell & 0x1f) << 3 | 4;
+        return (red << 16) | (green << 8) | blue;
+    }
+
+    /** Top k dominant colors of the opaque pixels of an image. */
+    public static Palette extract(BufferedImage image, int k) {
+        Histogram histogram = Histogram.forCurrentThread();
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int pixel = image.getRGB(x, y);
+                if ((pixel >>> 24) == 255) {
+                    histogram.add(pixel, 1);
+                }
+            }
+        }
+        return histogram.palette(k);
+    }
+
+    /**
+     * Median cut over the populated cells. cells[i] holds a histogram cell index and counts[i]
+     * its pixel count, for i in [0, size). Both arrays are reordered in place.
+     */
+    public static Palette extract(int[] cells, int[] counts, int size, int k) {
+        if (size == 0 || k < 1) {
+            return Palette.empty();
+        }
+        int[] boxStart = new int[k];
+        int[] boxEnd = new int[k];
+        boxEnd[0] = size;
+        int boxes = 1;
+        int[] scratchCells = new int[size];
+        int[] scratchCounts = new int[size];
+
+        while (boxes < k) {
+            // Split the box with the largest population-weighted extent
+            int chosen = -1;
+            int chosenAxis = 0;
+            long chosenScore = 0;
+            for (int b = 0; b < boxes; b++) {
+                if (boxEnd[b] - boxStart[b] < 2) {
+                    continue;
+                }
+                int axis = 0;
+                int longest = -1;
+                for (int a = 0; a < 3; a++) {
+                    int min = 31;
+                    int max = 0;
+                    for (int i = boxStart[b]; i < boxEnd[b]; i++) {
+                        int value = channel(cells[i], a);
+                        min = Math.min(min, value);
+                        max = Math.max(max, value);
+                    }
+                    if (max - min > longest) {
+                        longest = max - min;
+                        axis = a;
+                    }
+                }
+                long score = (long) longest * population(counts, boxStart[b], boxEnd[b]);
+                if (score > chosenScore) {
+                    chosenScore = score;
+                    chosen = b;
+                    chosenAxis = axis;
+                }
+            }
+            if (chosen < 0) {
+                break;
+            }
+
+            int start = boxStart[chosen];
+            int end = boxEnd[chosen];
+            sortByChannel(cells, counts, start, end, chosenAxis, scratchCells, scratchCounts);
+            long half = population(counts, start, end) / 2;
+            long running = 0;
+            int split = start + 1;
+            for (int i = start; i < end - 1; i++) {
+                running += counts[i];
+                split = i + 1;
+                if (running >= half) {
+                    break;
+                }
+            }
+            boxEnd[chosen] = split;
+            boxStart[boxes] = split;
+            boxEnd[boxes] = end;
+            boxes++;
+        }
+
+        // One color per box, heaviest first
+        long total = population(counts, 0, size);
+        int[] colors = new int[boxes];
+        long[] populations = new long[boxes];
+        for (int b = 0; b < boxes; b++) {
+            long red = 0;
+            long green = 0;
+            long blue = 0;
+            long pixels = 0;
+            for (int i = boxStart[b]; i < boxEnd[b]; i++) {
+                int center = colorOf(cells[i]);
+                red += (long) ((center >> 16) & 0xff) * counts[i];
+                green += (long) ((center >> 8) & 0xff) * counts[i];
+                blue += (long) (center & 0xff) * counts[i];
+                pixels += counts[i];
+            }
+            colors[b] = (int) (red / pixels) << 16 | (int) (green / pixels) << 8 | (int) (blue / pixels);
+            populations[b] = pixels;
+        }
+        for (int i = 1; i < boxes; i++) {
+            for (int j = i; j > 0 && populations[j] > populations[j - 1]; j--) {
+                long p = populations[j];
+                populations[j] = populations[j - 1];
+                populations[j - 1] = p;
+                int c = colors[j];
+                colors[j] = colors[j - 1];
+                colors[j - 1] = c;
+            }
+        }
+        float[] weights = new float[boxes];
+        for (int b = 0; b < boxes; b++) {
+            weights[b] = (float) populations[b] / total;
+        }
+        return new Palette(colors, weights);
+    }
+
+    private static int channel(int cell, int axis) {
+        return (cell >> (10 - 5 * axis)) & 0x1f;
+    }
+
+    private static long population(int[] counts, int start, int end) {
+        long pixels = 0;
+        for (int i = start; i < end; i++) {
+            pixels += counts[i];
+        }
+        return pixels;
+    }
+
+    // Counting sort of [start, end) on one 5-bit channel, stable
+    private static void sortByChannel(int[] cells, int[] counts, int start, int end, int axis,
+            int[] scratchCells, int[] scratchCounts) {
+        int[] offsets = new int[33];
+        for (int i = start; i < end; i++) {
+            offsets[channel(cells[i], axis) + 1]++;
+        }
+        for (int v = 0; v < 32; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        for (int i = start; i < end; i++) {
+            int slot = offsets[channel(cells[i], axis)]++;
+            scratchCells[slot] = cells[i];
+            scratchCounts[slot] = counts[i];
+        }
+        System.arraycopy(scratchCells, 0, cells, start, end - start);
+        System.arraycopy(scratchCounts, 0, counts, start, end - start);
+    }
+
+    /**
+     * 5-bit histogram that remembers which cells it touched, so building the palette and
+     * resetting for the next image cost as much as the number of distinct cells rather
+     * than all 32768. One instance per thread is reused across images.
+     */
+    static final class Histogram {
+        private static final ThreadLocal<Histogram> PER_THREAD = ThreadLocal.withInitial(Histogram::new);
+
+        private final int[] counts = new int[HISTOGRAM_SIZE];
+        private final int[] touched = new int[HISTOGRAM_SIZE];
+        private int size;
+
+        /** This thread's histogram, emptied of anything a failed scan left behind. */
+        static Histogram forCurrentThread() {
+            Histogram histogram = PER_THREAD.get();
+            for (int i = 0; i < histogram.size; i++) {
+                histogram.counts[histogram.touched[i]] = 0;
+            }
+            histogram.size = 0;
+            return histogram;
+        }
+
+        void add(int rgb, int pixels) {
+            int cell = cellOf(rgb);
+            if (counts[cell] == 0) {
+                touched[size++] = cell;
+            }
+            counts[cell] += pixels;
+        }
+
+        /** Everything added so far collapsed into a normalized {@link ColorHistogram} signature. */
+        float[] signature() {
+            float[] signature = new float[ColorHistogram.SIZE];
+            long total = 0;
+            for (int i = 0; i < size; i++) {
+                signature[ColorHistogram.binOfCell(touched[i])] += counts[touched[i]];
+                total += counts[touched[i]];
+            }
+            if (total > 0) {
+                for (int bin = 0; bin < signature.length; bin++) {
+                    signature[bin] /= total;
+                }
+            }
+            return signature;
+        }
+
+        /** Median-cut palette of everything added so far; empties the histogram. */
+        Palette palette(int k) {
+            // Cell order decides ties in the cut, so start from a fixed one rather than
+            // the order the scan happened to meet the colors in
+            Arrays.sort(touched, 0, size);
+            int[] cells = new int[size];
+            int[] cellCounts = new int[size];
+            for (int i = 0; i < size; i++) {
+                cells[i] = touched[i];
+                cellCounts[i] = counts[touched[i]];
+                counts[touched[i]] = 0;
+            }
+            size = 0;
+            return extract(cells, cellCounts, cells.length, k);
+        }
+    }
+}
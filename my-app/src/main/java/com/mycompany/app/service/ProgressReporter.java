@@ -0,0 +1,95 @@
+package com.mycompany.app.service;
+
+import java.io.PrintStream;
+
+/**
+ * Progress lines for long indexing runs, printed at most once per interval instead of
+ * once per image. Off unless asked for with the {@code pokemon.progress} system property:
+ * {@code true} prints every second, a number sets the interval in milliseconds, and 0
+ * prints every image as the indexer used to.
+ *
+ * Called from the thread that collects results, so it needs no locking.
+ */
+public class ProgressReporter {
+    /** Interval used when the property is just "true". */
+    public static final long DEFAULT_INTERVAL_MILLIS = 1000;
+
+    private final PrintStream out;
+    private final long intervalNanos;
+    private final int total;
+    private final long startNanos = System.nanoTime();
+    private long lastReportNanos;
+    private int done;
+    private int reported;
+    private String lastFile;
+
+    /** @param intervalMillis least time between two lines, or negative to stay silent */
+    public ProgressReporter(PrintStream out, long intervalMillis, int total) {
+        this.out = out;
+        this.intervalNanos = intervalMillis < 0 ? -1 : intervalMillis * 1_000_000;
+        this.total = total;
+        this.lastReportNanos = startNanos;
+    }
+
+    /** Reporter configured from the pokemon.progress system property. */
+    public static ProgressReporter fromSystemProperty(int total) {
+        return new ProgressReporter(System.out, parseInterval(System.getProperty("pokemon.progress")), total);
+    }
+
+    /** Interval in milliseconds for a pokemon.progress value, or -1 when progress is off. */
+    static long parseInterval(String value) {
+        if (value == null || value.isBlank() || value.equalsIgnoreCase("false")) {
+            return -1;
+        }
+        if (value.equalsIgnoreCase("true")) {
+            return DEFAULT_INTERVAL_MILLIS;
+        }
+        try {
+            return Math.max(0, Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            System.err.println("Ignoring pokemon.progress=" + value + ", expected true, false or milliseconds");
+            return -1;
+        }
+    }
+
+    public boolean isEnabled() {
+        return intervalNanos >= 0;
+    }
+
+    /** Counts one finished image and prints a line if the interval has passed. */
+    public void imageDone(String fileName) {
+        done++;
+        lastFile = fileName;
+        if (!isEnabled()) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (now - lastReportNanos >= intervalNanos) {
+            report(now);
+        }
+    }
+
+    /** Prints a last line for images finished since the previous one. */
+    public void finish() {
+        if (isEnabled() && done > reported) {
+            report(System.nanoTime());
+        }
+    }
+
+    public int getDone() {
+        return done;
+    }
+
+    private void report(long now) {
+        double seconds = (now - startNanos) / 1e9;
+        double rate = seconds > 0 ? done / seconds : 0;
+        if (intervalNanos == 0) {
+            out.println("Processed image: " + lastFile.toLowerCase());
+        } else {
+            out.println(String.format("Processed %d/%d images (%.0f%%), %.1f images/sec, last: %s",
+                done, total, total == 0 ? 100.0 : done * 100.0 / total, rate, lastFile.toLowerCase()));
+        }
+        lastReportNanos = now;
+        reported = done;
+    }
+}
@@ -0,0 +1,88 @@
+package com.mycompany.app.service;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+
+import com.mycompany.app.service.IndexingMetrics.Phase;
+
+/**
+ * Writes the metrics of a run in the Prometheus text exposition format, for the
+ * node_exporter textfile collector or anything else that scrapes files. The file is
+ * written next to its final name and moved into place, so a scrape never sees half of it.
+ */
+public class PrometheusMetricsSink implements MetricsSink {
+    public static final Path DEFAULT_PATH = Paths.get("image_index_metrics.prom");
+
+    private final Path file;
+
+    public PrometheusMetricsSink(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public void publish(IndexingMetrics metrics) {
+        try {
+            Path absolute = file.toAbsolutePath();
+            Path temp = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+            Files.write(temp, format(metrics).getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Could not write indexing metrics to " + file + ": " + e.getMessage());
+        }
+    }
+
+    static String format(IndexingMetrics metrics) {
+        StringWriter out = new StringWriter();
+        counter(out, "pokemon_index_images_total", "Images read, decoded and analysed.", metrics.getIndexed());
+        counter(out, "pokemon_index_failures_total", "Images that could not be read or analysed.",
+            metrics.getFailed());
+        counter(out, "pokemon_index_unsupported_total", "Image files no ImageIO reader could decode.",
+            metrics.getUnsupported());
+        counter(out, "pokemon_index_skipped_files_total", "Files skipped because of their extension.",
+            metrics.getSkipped());
+        counter(out, "pokemon_index_unchanged_images_total", "Images reused from the manifest.",
+            metrics.getUnchanged());
+
+        out.write("# HELP pokemon_index_phase_seconds_total Time spent per phase, summed across workers.\n");
+        out.write("# TYPE pokemon_index_phase_seconds_total counter\n");
+        for (Phase phase : Phase.values()) {
+            out.write("pokemon_index_phase_seconds_total{phase=\"" + phase.label() + "\"} "
+                + seconds(metrics.phase(phase).getTotalNanos()) + "\n");
+        }
+
+        LatencyHistogram latency = metrics.getImageLatency();
+        long[] buckets = latency.bucketCounts();
+        out.write("# HELP pokemon_index_image_seconds Time to read, decode and analyse one image.\n");
+        out.write("# TYPE pokemon_index_image_seconds histogram\n");
+        long cumulative = 0;
+        for (int i = 0; i < LatencyHistogram.boundCount(); i++) {
+            cumulative += buckets[i];
+            out.write("pokemon_index_image_seconds_bucket{le=\"" + seconds(LatencyHistogram.bound(i)) + "\"} "
+                + cumulative + "\n");
+        }
+        cumulative += buckets[buckets.length - 1];
+        out.write("pokemon_index_image_seconds_bucket{le=\"+Inf\"} " + cumulative + "\n");
+        out.write("pokemon_index_image_seconds_sum " + seconds(latency.getTotalNanos()) + "\n");
+        out.write("pokemon_index_image_seconds_count " + cumulative + "\n");
+        return out.toString();
+    }
+
+    private static void counter(StringWriter out, String name, String help, long value) {
+        out.write("# HELP " + name + " " + help + "\n");
+        out.write("# TYPE " + name + " counter\n");
+        out.write(name + " " + value + "\n");
+    }
+
+    private static String seconds(long nanos) {
+        // Trailing zeros of the fraction only, never of the integer part: 100000 stays 100000
+        return String.format(Locale.ROOT, "%.6g", nanos / 1e9)
+            .replaceAll("(\\.\\d*?)0+(e|$)", "$1$2")
+            .replaceAll("\\.(e|$)", "$1");
+    }
+}
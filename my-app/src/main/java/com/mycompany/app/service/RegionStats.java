@@ -0,0 +1,384 @@
+package com.mycompany.app.service;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Average color of any rectangle or round brush of an image, in constant time per
+ * rectangle after a single pass over the pixels.
+ *
+ * The pass builds a summed-area table (integral image) for the red, green and blue sums
+ * of the opaque pixels and one for their count. Like rgbAverage, only fully opaque pixels
+ * count. The sum over any block-aligned rectangle is then four lookups per table.
+ *
+ * With a stride above 1, each table cell covers a stride x stride block of pixels. The
+ * pass still reads every pixel, so each block sum is exact, but the tables are stride²
+ * times smaller. A rectangle that cuts through blocks is bracketed by the blocks that lie
+ * wholly inside it and the blocks that touch it. The estimate interpolates between the
+ * two by area, and {@link Average#getErrorBound()} is a guaranteed bound derived from the
+ * same pair. At stride 1 every query is exact.
+ */
+public class RegionStats {
+    /** Largest table {@link #of(BufferedImage)} builds before it moves to a coarser stride. */
+    public static final int MAX_CELLS = 1 << 20;
+
+    private final int width;
+    private final int height;
+    private final int stride;
+    private final int columns;
+    private final int rows;
+    // Summed-area tables of (rows + 1) x (columns + 1) cells; entry (r, c) covers blocks [0, r) x [0, c)
+    private final long[] red;
+    private final long[] green;
+    private final long[] blue;
+    private final int[] opaque;
+
+    private RegionStats(int width, int height, int stride) {
+        this.width = width;
+        this.height = height;
+        this.stride = stride;
+        this.columns = (width + stride - 1) / stride;
+        this.rows = (height + stride - 1) / stride;
+        int cells = (rows + 1) * (columns + 1);
+        this.red = new long[cells];
+        this.green = new long[cells];
+        this.blue = new long[cells];
+        this.opaque = new int[cells];
+    }
+
+    /**
+     * Tables at stride 1, exact, unless the image has more than MAX_CELLS pixels; larger
+     * art gets the smallest stride that fits.
+     */
+    public static RegionStats of(BufferedImage image) {
+        int stride = 1;
+        while ((long) ceilDiv(image.getWidth(), stride) * ceilDiv(image.getHeight(), stride) > MAX_CELLS) {
+            stride++;
+        }
+        return of(image, stride);
+    }
+
+    /** Tables with one cell per stride x stride block of pixels. */
+    public static RegionStats of(BufferedImage image, int stride) {
+        if (stride < 1) {
+            throw new IllegalArgumentException("stride must be positive");
+        }
+        RegionStats stats = new RegionStats(image.getWidth(), image.getHeight(), stride);
+        stats.build(image);
+        return stats;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getStride() {
+        return stride;
+    }
+
+    /** Approximate size of the tables in bytes. */
+    public long getMemoryBytes() {
+        return (long) opaque.length * (3 * Long.BYTES + Integer.BYTES);
+    }
+
+    /** Average of the opaque pixels in the rectangle, clipped to the image. */
+    public Average average(int x, int y, int w, int h) {
+        int x0 = clamp(x, width);
+        int y0 = clamp(y, height);
+        int x1 = clamp((long) x + Math.max(0, w), width);
+        int y1 = clamp((long) y + Math.max(0, h), height);
+        Tally tally = new Tally();
+        if (x0 < x1 && y0 < y1) {
+            addBand(tally, y0, y1, x0, x1, x0, x1, (long) (x1 - x0) * (y1 - y0));
+        }
+        return tally.average();
+    }
+
+    /**
+     * Average of the opaque pixels within radius of (centerX, centerY), clipped to the
+     * image. Costs one band per row of blocks the brush covers, O(radius / stride).
+     */
+    public Average averageInCircle(int centerX, int centerY, int radius) {
+        Tally tally = new Tally();
+        if (radius < 0) {
+            return tally.average();
+        }
+        int top = Math.max(0, centerY - radius);
+        int bottom = Math.min(height, centerY + radius + 1);
+        for (int bandStart = top; bandStart < bottom; bandStart = (bandStart / stride + 1) * stride) {
+            int bandEnd = Math.min(bottom, (bandStart / stride + 1) * stride);
+            // Union and intersection of the rows' spans within this row of blocks
+            int unionStart = Integer.MAX_VALUE;
+            int unionEnd = Integer.MIN_VALUE;
+            int commonStart = Integer.MIN_VALUE;
+            int commonEnd = Integer.MAX_VALUE;
+            long area = 0;
+            for (int y = bandStart; y < bandEnd; y++) {
+                int dy = y - centerY;
+                int half = (int) Math.sqrt((double) radius * radius - (double) dy * dy);
+                int spanStart = clamp((long) centerX - half, width);
+                int spanEnd = clamp((long) centerX + half + 1, width);
+                unionStart = Math.min(unionStart, spanStart);
+                unionEnd = Math.max(unionEnd, spanEnd);
+                commonStart = Math.max(commonStart, spanStart);
+                commonEnd = Math.min(commonEnd, spanEnd);
+                area += Math.max(0, spanEnd - spanStart);
+            }
+            if (area > 0) {
+                addBand(tally, bandStart, bandEnd, commonStart, Math.max(commonStart, commonEnd),
+                    unionStart, unionEnd, area);
+            }
+        }
+        return tally.average();
+    }
+
+    /**
+     * Adds pixel rows [y0, y1), each of which lies within [outerX0, outerX1) and covers
+     * [innerX0, innerX1), with area query pixels in total.
+     */
+    private void addBand(Tally tally, int y0, int y1, int innerX0, int innerX1, int outerX0, int outerX1,
+            long area) {
+        // Blocks wholly inside the query
+        int innerTop = blockCeil(y0, height, rows);
+        int innerBottom = blockFloor(y1, height, rows);
+        int innerLeft = blockCeil(innerX0, width, columns);
+        int innerRight = blockFloor(innerX1, width, columns);
+        if (innerLeft < innerRight && innerTop < innerBottom) {
+            tally.innerRed += sum(red, innerLeft, innerTop, innerRight, innerBottom);
+            tally.innerGreen += sum(green, innerLeft, innerTop, innerRight, innerBottom);
+            tally.innerBlue += sum(blue, innerLeft, innerTop, innerRight, innerBottom);
+            tally.innerCount += count(innerLeft, innerTop, innerRight, innerBottom);
+            tally.innerArea += pixelArea(innerLeft, innerTop, innerRight, innerBottom);
+        }
+        // Blocks touching it
+        int outerTop = y0 / stride;
+        int outerBottom = ceilDiv(y1, stride);
+        int outerLeft = outerX0 / stride;
+        int outerRight = ceilDiv(outerX1, stride);
+        tally.outerRed += sum(red, outerLeft, outerTop, outerRight, outerBottom);
+        tally.outerGreen += sum(green, outerLeft, outerTop, outerRight, outerBottom);
+        tally.outerBlue += sum(blue, outerLeft, outerTop, outerRight, outerBottom);
+        tally.outerCount += count(outerLeft, outerTop, outerRight, outerBottom);
+        tally.outerArea += pixelArea(outerLeft, outerTop, outerRight, outerBottom);
+        tally.area += area;
+    }
+
+    private long sum(long[] table, int left, int top, int right, int bottom) {
+        int span = columns + 1;
+        return table[bottom * span + right] - table[top * span + right]
+            - table[bottom * span + left] + table[top * span + left];
+    }
+
+    private long count(int left, int top, int right, int bottom) {
+        int span = columns + 1;
+        return (long) opaque[bottom * span + right] - opaque[top * span + right]
+            - opaque[bottom * span + left] + opaque[top * span + left];
+    }
+
+    // Pixels covered by blocks [left, right) x [top, bottom); edge blocks may be narrower
+    private long pixelArea(int left, int top, int right, int bottom) {
+        if (left >= right || top >= bottom) {
+            return 0;
+        }
+        return (long) (Math.min(width, right * stride) - left * stride)
+            * (Math.min(height, bottom * stride) - top * stride);
+    }
+
+    // First block starting at or after the pixel edge
+    private int blockCeil(int edge, int size, int blocks) {
+        return edge >= size ? blocks : ceilDiv(edge, stride);
+    }
+
+    // Blocks ending at or before the pixel edge; the image edge closes the last, narrower block
+    private int blockFloor(int edge, int size, int blocks) {
+        return edge >= size ? blocks : edge / stride;
+    }
+
+    private void build(BufferedImage image) {
+        int span = columns + 1;
+        int[] row = new int[width];
+        long[] blockRed = new long[columns];
+        long[] blockGreen = new long[columns];
+        long[] blockBlue = new long[columns];
+        int[] blockCount = new int[columns];
+        for (int by = 0; by < rows; by++) {
+            Arrays.fill(blockRed, 0);
+            Arrays.fill(blockGreen, 0);
+            Arrays.fill(blockBlue, 0);
+            Arrays.fill(blockCount, 0);
+            for (int y = by * stride, yEnd = Math.min(height, y + stride); y < yEnd; y++) {
+                image.getRGB(0, y, width, 1, row, 0, width);
+                for (int bx = 0; bx < columns; bx++) {
+                    long r = 0;
+                    long g = 0;
+                    long b = 0;
+                    int n = 0;
+                    for (int x = bx * stride, xEnd = Math.min(width, x + stride); x < xEnd; x++) {
+                        int argb = row[x];
+                        if ((argb >>> 24) == 255) {
+                            r += (argb >> 16) & 0xff;
+                            g += (argb >> 8) & 0xff;
+                            b += argb & 0xff;
+                            n++;
+                        }
+                    }
+                    blockRed[bx] += r;
+                    blockGreen[bx] += g;
+                    blockBlue[bx] += b;
+                    blockCount[bx] += n;
+                }
+            }
+            // Integral rows: this row's running sums plus the integral row above
+            long rowRed = 0;
+            long rowGreen = 0;
+            long rowBlue = 0;
+            int rowCount = 0;
+            int above = by * span;
+            int here = (by + 1) * span;
+            for (int bx = 0; bx < columns; bx++) {
+                rowRed += blockRed[bx];
+                rowGreen += blockGreen[bx];
+                rowBlue += blockBlue[bx];
+                rowCount += blockCount[bx];
+                red[here + bx + 1] = red[above + bx + 1] + rowRed;
+                green[here + bx + 1] = green[above + bx + 1] + rowGreen;
+                blue[here + bx + 1] = blue[above + bx + 1] + rowBlue;
+                opaque[here + bx + 1] = opaque[above + bx + 1] + rowCount;
+            }
+        }
+    }
+
+    private static int clamp(long value, int size) {
+        return (int) Math.max(0, Math.min(size, value));
+    }
+
+    private static int ceilDiv(int value, int divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+
+    /** Running sums of one query: blocks wholly inside, blocks touching, and the query's own area. */
+    private static final class Tally {
+        long innerRed;
+        long innerGreen;
+        long innerBlue;
+        long innerCount;
+        long innerArea;
+        long outerRed;
+        long outerGreen;
+        long outerBlue;
+        long outerCount;
+        long outerArea;
+        long area;
+
+        Average average() {
+            if (outerCount == 0) {
+                return new Average(-1, 0, area, 0);
+            }
+            boolean exact = innerArea == outerArea;
+            // Share of the partly covered blocks' pixels that belong to the query
+            double share = exact ? 0 : (double) (area - innerArea) / (outerArea - innerArea);
+            double count = innerCount + share * (outerCount - innerCount);
+            double r;
+            double g;
+            double b;
+            if (count > 0) {
+                r = (innerRed + share * (outerRed - innerRed)) / count;
+                g = (innerGreen + share * (outerGreen - innerGreen)) / count;
+                b = (innerBlue + share * (outerBlue - innerBlue)) / count;
+            } else {
+                // Opaque pixels only in the partly covered blocks; their average is the best guess
+                r = (double) outerRed / outerCount;
+                g = (double) outerGreen / outerCount;
+                b = (double) outerBlue / outerCount;
+            }
+            int rgb = (channel(r) << 16) | (channel(g) << 8) | channel(b);
+
+            double bound = 0;
+            if (!exact) {
+                // True sums lie between the inner and outer sums, so the true average lies
+                // between inner sum / outer count and outer sum / inner count
+                bound = Math.max(bound, spread(r, innerRed, outerRed));
+                bound = Math.max(bound, spread(g, innerGreen, outerGreen));
+                bound = Math.max(bound, spread(b, innerBlue, outerBlue));
+            }
+            return new Average(rgb, Math.round(count), area, bound);
+        }
+
+        private double spread(double estimate, long innerSum, long outerSum) {
+            double low = (double) innerSum / outerCount;
+            double high = innerCount == 0 ? 255 : Math.min(255, (double) outerSum / innerCount);
+            return Math.max(estimate - low, high - estimate);
+        }
+
+        // Truncated like rgbAverage, so exact regions agree with it
+        private static int channel(double value) {
+            return (int) Math.max(0, Math.min(255, Math.floor(value + 1e-9)));
+        }
+    }
+
+    /**
+     * Average color of a region's opaque pixels.
+     */
+    public static final class Average {
+        private final int rgb;
+        private final long opaquePixels;
+        private final long area;
+        private final double errorBound;
+
+        Average(int rgb, long opaquePixels, long area, double errorBound) {
+            this.rgb = rgb;
+            this.opaquePixels = opaquePixels;
+            this.area = area;
+            this.errorBound = errorBound;
+        }
+
+        /** False when the region has no opaque pixels. */
+        public boolean hasAverage() {
+            return rgb >= 0;
+        }
+
+        /** Average as 0xRRGGBB, or -1 without opaque pixels. */
+        public int getRgb() {
+            return rgb;
+        }
+
+        /** Opaque pixels in the region; estimated when the average is not exact. */
+        public long getOpaquePixels() {
+            return opaquePixels;
+        }
+
+        /** Pixels in the region after clipping to the image. */
+        public long getArea() {
+            return area;
+        }
+
+        /**
+         * Largest possible difference, per channel on the 0-255 scale, between this
+         * average and the exact one. 0 when the average is exact.
+         */
+        public double getErrorBound() {
+            return errorBound;
+        }
+
+        public boolean isExact() {
+            return errorBound == 0;
+        }
+
+        /** Same R#G#B# form as ColorStats.toRgbString. */
+        public String toRgbString() {
+            return "R" + ((rgb >> 16) & 0xff) + "G" + ((rgb >> 8) & 0xff) + "B" + (rgb & 0xff);
+        }
+
+        @Override
+        public String toString() {
+            return hasAverage()
+                ? toRgbString() + " over " + opaquePixels + "/" + area + " pixels"
+                    + (isExact() ? "" : String.format(" (±%.1f)", errorBound))
+                : "no opaque pixels in " + area;
+        }
+    }
+}
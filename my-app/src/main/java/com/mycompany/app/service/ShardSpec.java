@@ -0,0 +1,82 @@
+package com.mycompany.app.service;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.zip.CRC32C;
+
+/**
+ * One of n disjoint shards of the images, written {@code i/n} with 0 <= i < n.
+ *
+ * Images are assigned by a hash of their file name, not their full path, so every process
+ * agrees on the split no matter where the art is mounted or which archive it is in, and
+ * adding images never moves existing ones to another shard. Each shard keeps its records
+ * in a partial catalogue next to the manifest; DocumentPokemon.mergeShards combines them.
+ */
+public final class ShardSpec {
+    /** The single shard covering every image. */
+    public static final ShardSpec ALL = new ShardSpec(0, 1);
+
+    private final int index;
+    private final int count;
+
+    public ShardSpec(int index, int count) {
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("Shard must be i/n with 0 <= i < n, got " + index + "/" + count);
+        }
+        this.index = index;
+        this.count = count;
+    }
+
+    /** Parses {@code i/n}, e.g. "0/4" for the first of four shards. */
+    public static ShardSpec parse(String spec) {
+        int slash = spec.indexOf('/');
+        if (slash < 0) {
+            throw new IllegalArgumentException("Shard must be written i/n, got " + spec);
+        }
+        try {
+            return new ShardSpec(Integer.parseInt(spec.substring(0, slash).trim()),
+                Integer.parseInt(spec.substring(slash + 1).trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Shard must be written i/n, got " + spec);
+        }
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public boolean isAll() {
+        return count == 1;
+    }
+
+    /** Whether the image with this file name belongs to the shard. */
+    public boolean contains(String fileName) {
+        if (count == 1) {
+            return true;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(fileName.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue() % count == index;
+    }
+
+    /**
+     * Partial catalogue of this shard, next to the manifest it replaces:
+     * image_manifest.json becomes image_manifest.shard-1-of-4.json.
+     */
+    public Path partialPath(Path manifestPath) {
+        String name = manifestPath.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = dot < 0 ? name : name.substring(0, dot);
+        String extension = dot < 0 ? "" : name.substring(dot);
+        return manifestPath.resolveSibling(base + ".shard-" + index + "-of-" + count + extension);
+    }
+
+    @Override
+    public String toString() {
+        return index + "/" + count;
+    }
+}
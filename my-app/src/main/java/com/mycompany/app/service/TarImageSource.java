@@ -0,0 +1,213 @@
+package com.mycompany.app.service;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Image source over an uncompressed tar archive, read in place.
+ *
+ * Listing walks the 512-byte headers once and remembers where each file's data starts;
+ * opening an entry then streams that range with positional reads on one shared channel,
+ * so workers can decode entries in any order and in parallel. Understands ustar name
+ * prefixes, GNU long names and the path of pax extended headers.
+ */
+class TarImageSource implements ImageSource {
+    private static final int BLOCK = 512;
+
+    private final FileChannel channel;
+    private final String prefix;
+
+    TarImageSource(Path archive) throws IOException {
+        this.channel = FileChannel.open(archive, StandardOpenOption.READ);
+        this.prefix = archive.toAbsolutePath() + "!/";
+    }
+
+    @Override
+    public List<Entry> list() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        long end = channel.size();
+        long position = 0;
+        String longName = null;
+        while (position + BLOCK <= end) {
+            byte[] header = read(position, BLOCK);
+            if (isZero(header)) {
+                break; // end-of-archive marker
+            }
+            long size = number(header, 124, 12);
+            long mtime = number(header, 136, 12);
+            byte type = header[156];
+            long data = position + BLOCK;
+            position = data + (size + BLOCK - 1) / BLOCK * BLOCK;
+            if (data + size > end) {
+                throw new EOFException("Truncated tar archive at " + (data - BLOCK));
+            }
+
+            if (type == 'L') { // GNU long name of the next entry
+                longName = string(read(data, (int) size), 0, (int) size);
+                continue;
+            }
+            if (type == 'x') { // pax extended header of the next entry
+                String path = paxPath(read(data, (int) size));
+                if (path != null) {
+                    longName = path;
+                }
+                continue;
+            }
+            String name = longName != null ? longName : headerName(header);
+            longName = null;
+            if (type != '0' && type != 0 && type != '7') {
+                continue; // directories, links, devices, global headers
+            }
+
+            long offset = data;
+            entries.add(new Entry(name.substring(name.lastIndexOf('/') + 1), prefix + name, size, mtime * 1000) {
+                @Override
+                public InputStream open() {
+                    return new BufferedInputStream(new RangeInputStream(offset, offset + size), BUFFER_SIZE);
+                }
+            });
+        }
+        return entries;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private byte[] read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Truncated tar archive at " + position);
+            }
+        }
+        return buffer.array();
+    }
+
+    private static boolean isZero(byte[] block) {
+        for (byte b : block) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ustar splits long paths into a prefix and a name
+    private static String headerName(byte[] header) {
+        String name = string(header, 0, 100);
+        boolean ustar = string(header, 257, 5).equals("ustar");
+        String namePrefix = ustar ? string(header, 345, 155) : "";
+        return namePrefix.isEmpty() ? name : namePrefix + "/" + name;
+    }
+
+    // NUL-terminated field
+    private static String string(byte[] bytes, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && bytes[end] != 0) {
+            end++;
+        }
+        return new String(bytes, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    // Octal, or big-endian binary when the high bit of the first byte is set (GNU, for sizes past 8 GB)
+    private static long number(byte[] header, int offset, int length) {
+        long value = 0;
+        if ((header[offset] & 0x80) != 0) {
+            for (int i = offset + 1; i < offset + length; i++) {
+                value = value << 8 | (header[i] & 0xff);
+            }
+            return value;
+        }
+        for (int i = offset; i < offset + length; i++) {
+            byte b = header[i];
+            if (b >= '0' && b <= '7') {
+                value = value * 8 + (b - '0');
+            } else if (b != ' ' || value != 0) {
+                break;
+            }
+        }
+        return value;
+    }
+
+    // pax records are "<length> <key>=<value>\n"; only the path matters here
+    private static String paxPath(byte[] records) {
+        int position = 0;
+        while (position < records.length) {
+            int space = position;
+            while (space < records.length && records[space] != ' ') {
+                space++;
+            }
+            int length;
+            try {
+                length = Integer.parseInt(new String(records, position, space - position, StandardCharsets.US_ASCII));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (length <= 0 || position + length > records.length) {
+                return null;
+            }
+            String record = new String(records, space + 1, position + length - space - 2, StandardCharsets.UTF_8);
+            if (record.startsWith("path=")) {
+                return record.substring("path=".length());
+            }
+            position += length;
+        }
+        return null;
+    }
+
+    /** One entry's bytes, read with positional reads so streams never share a file position. */
+    private final class RangeInputStream extends InputStream {
+        private long position;
+        private final long end;
+
+        RangeInputStream(long position, long end) {
+            this.position = position;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (position >= end) {
+                return -1;
+            }
+            int n = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, end - position)), position);
+            if (n < 0) {
+                throw new EOFException("Tar archive shrank while reading");
+            }
+            position += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, end - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, end - position);
+        }
+    }
+}
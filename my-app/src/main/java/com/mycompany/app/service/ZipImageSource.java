@@ -0,0 +1,50 @@
+package com.mycompany.app.service;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Image source over the entries of a zip archive, read in place through its central
+ * directory. ZipFile streams are safe to open from several threads at once.
+ */
+class ZipImageSource implements ImageSource {
+    private final ZipFile zip;
+    private final String prefix;
+
+    ZipImageSource(Path archive) throws IOException {
+        this.zip = new ZipFile(archive.toFile());
+        this.prefix = archive.toAbsolutePath() + "!/";
+    }
+
+    @Override
+    public List<Entry> list() {
+        List<Entry> entries = new ArrayList<>();
+        for (Enumeration<? extends ZipEntry> it = zip.entries(); it.hasMoreElements();) {
+            ZipEntry entry = it.nextElement();
+            if (entry.isDirectory()) {
+                continue;
+            }
+            String path = entry.getName();
+            entries.add(new Entry(path.substring(path.lastIndexOf('/') + 1), prefix + path, entry.getSize(),
+                    entry.getTime()) {
+                @Override
+                public InputStream open() throws IOException {
+                    return new BufferedInputStream(zip.getInputStream(entry), BUFFER_SIZE);
+                }
+            });
+        }
+        return entries;
+    }
+
+    @Override
+    public void close() throws IOException {
+        zip.close();
+    }
+}
@@ -5,34 +5,57 @@ import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-import javax.imageio.ImageIO;
 import javax.swing.JButton;
 import javax.swing.JComboBox;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.JSplitPane;
 import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
 
+import com.mycompany.app.service.ColorIndex;
+import com.mycompany.app.service.ColorMatcher;
+import com.mycompany.app.service.ColorStats;
 import com.mycompany.app.service.DocumentPokemon;
-import com.mycompany.app.service.ImagePixelParser;
+import com.mycompany.app.service.MatchCache;
+import com.mycompany.app.service.RegionStats;
 
 public class PokemonImageViewer extends JFrame {
+    private static final Path IMAGE_DIR = Paths.get("src/main/resources/images");
+    /** Pixels kept decoded for quick re-selection, at 4 bytes each. */
+    private static final long SPRITE_CACHE_BYTES = 64L << 20;
+    /** Entries on each side of the selection decoded ahead of time. */
+    private static final int PREFETCH_DISTANCE = 2;
+    /** Radius in pixels of the area averaged under the cursor. */
+    private static final int BRUSH_RADIUS = 3;
+
     private JLabel statusLabel;
     private JLabel colorLabel;
     private JPanel imagePanel;
     private BufferedImage currentImage;
+    private RegionStats currentRegions;
     private JComboBox<String> imageSelector;
+    private ThumbnailGrid grid;
+    // Closest catalogue image to the hovered color; the mouse revisits the same colors constantly.
+    // Both are only touched on the EDT.
+    private ColorIndex catalogue;
+    private MatchCache hoverMatches;
+    private final SpriteLoader sprites = new SpriteLoader(IMAGE_DIR, new SpriteCache(SPRITE_CACHE_BYTES));
 
     public PokemonImageViewer() {
         setTitle("Pokemon Image Viewer");
@@ -63,6 +86,20 @@ public class PokemonImageViewer extends JFrame {
         statusLabel = new JLabel("Ready");
         colorLabel = new JLabel("Pixel Color: N/A");
         imageSelector = new JComboBox<>();
+        grid = new ThumbnailGrid(IMAGE_DIR, openThumbnailStore());
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                // EXIT_ON_CLOSE exits straight after the listeners, without disposing. A thumbnail
+                // record cut short by the exit is dropped when the store is next opened
+                grid.close();
+            }
+
+            @Override
+            public void windowClosed(WindowEvent e) {
+                grid.close();
+            }
+        });
         
         // Add mouse motion listener to detect pixel color
         imagePanel.addMouseMotionListener(new MouseMotionAdapter() {
@@ -88,8 +125,20 @@ public class PokemonImageViewer extends JFrame {
                         int green = (rgb >> 8) & 0xff;
                         int blue = rgb & 0xff;
                         
-                        // Display color information
-                        colorLabel.setText(String.format("Pixel Color: R:%d G:%d B:%d A:%d", red, green, blue, alpha));
+                        // Display color information; the match uses the average under the brush,
+                        // which is steadier than a single anti-aliased or dithered pixel
+                        String text = String.format("Pixel Color: R:%d G:%d B:%d A:%d", red, green, blue, alpha);
+                        RegionStats.Average brush = currentRegions.averageInCircle(pixelX, pixelY, BRUSH_RADIUS);
+                        if (brush.hasAverage()) {
+                            text += " - brush: " + brush.toRgbString();
+                            if (hoverMatches != null) {
+                                int closest = hoverMatches.nearest(brush.getRgb());
+                                if (closest >= 0) {
+                                    text += " - closest: " + catalogue.name(closest);
+                                }
+                            }
+                        }
+                        colorLabel.setText(text);
                     } else {
                         colorLabel.setText("Pixel Color: N/A (not on image)");
                     }
@@ -103,24 +152,13 @@ public class PokemonImageViewer extends JFrame {
                 @Override
                 protected Void doInBackground() {
                     publish("Processing Pokemon images...");
-                    try {
-                        // Check if flag file exists
-                        File flagFile = new File("documentPokemon.flag");
-                        if (!flagFile.exists()) {
-                            publish("Running documentPokemon() for the first time...");
-                            DocumentPokemon.initializePokemon();
-                            flagFile.createNewFile();
-                            publish("documentPokemon() completed.");
-                        } else {
-                            publish("documentPokemon() has already been run before.");
-                        }
-                        
-                        // Load available images
-                        loadAvailableImages();
-                        
-                    } catch (IOException ex) {
-                        publish("Error: " + ex.getMessage());
-                    }
+                    // Incremental: only new or changed images are decoded again
+                    DocumentPokemon.initializePokemon();
+                    publish("documentPokemon() completed.");
+                    loadCatalogue();
+                    
+                    // Load available images
+                    loadAvailableImages();
                     return null;
                 }
                 
@@ -143,9 +181,19 @@ public class PokemonImageViewer extends JFrame {
         imageSelector.addActionListener(e -> {
             String selectedImage = (String) imageSelector.getSelectedItem();
             if (selectedImage != null) {
+                grid.setSelectedValue(selectedImage, true);
                 loadImage(selectedImage);
             }
         });
+
+        // Picking a tile selects the same image in the combo box, which loads it
+        grid.addListSelectionListener(e -> {
+            String selectedImage = grid.getSelectedValue();
+            if (!e.getValueIsAdjusting() && selectedImage != null
+                    && !selectedImage.equals(imageSelector.getSelectedItem())) {
+                imageSelector.setSelectedItem(selectedImage);
+            }
+        });
         
         // Layout components
         topPanel.add(processButton);
@@ -156,60 +204,107 @@ public class PokemonImageViewer extends JFrame {
         bottomPanel.add(colorLabel, BorderLayout.EAST);
         
         add(topPanel, BorderLayout.NORTH);
-        add(new JScrollPane(imagePanel), BorderLayout.CENTER);
+        JSplitPane split = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, new JScrollPane(grid),
+            new JScrollPane(imagePanel));
+        split.setDividerLocation(290);
+        add(split, BorderLayout.CENTER);
         add(bottomPanel, BorderLayout.SOUTH);
+
+        // Loading the index and building its matcher can take a while for a large catalogue,
+        // so it happens off the EDT and the window shows straight away
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() {
+                loadCatalogue();
+                return null;
+            }
+        }.execute();
+    }
+
+    private static ThumbnailStore openThumbnailStore() {
+        try {
+            return new ThumbnailStore(ThumbnailStore.DEFAULT_PATH, ThumbnailGrid.THUMBNAIL_SIZE);
+        } catch (IOException e) {
+            System.err.println("Thumbnails will not be saved: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Loads on the calling thread, never the EDT; only the fields are set on the EDT
+    private void loadCatalogue() {
+        try {
+            ColorIndex index = ColorIndex.load(DocumentPokemon.BINARY_INDEX_PATH);
+            MatchCache matches = new MatchCache(ColorMatcher.fromIndex(index), 6, 4096);
+            Map<String, Integer> averages = ThumbnailGrid.averageColors(index);
+            SwingUtilities.invokeLater(() -> {
+                catalogue = index;
+                hoverMatches = matches;
+                grid.setAverageColors(averages);
+            });
+        } catch (IOException e) {
+            // Not processed yet; hover shows the pixel color only
+        }
     }
     
+    // Lists the directory on the calling thread, then fills the selector on the EDT
     private void loadAvailableImages() {
-        imageSelector.removeAllItems();
-        
-        try {
-            Path imageDirPath = Paths.get("src/main/resources/images");
-            if (Files.exists(imageDirPath)) {
-                List<String> imageFiles = Files.list(imageDirPath)
-                    .filter(Files::isRegularFile)
-                    .map(path -> path.getFileName().toString())
-                    .filter(name -> name.toLowerCase().endsWith(".png") || 
-                                   name.toLowerCase().endsWith(".jpg") || 
-                                   name.toLowerCase().endsWith(".gif"))
-                    .collect(Collectors.toList());
-                
-                // Add images to selector
-                for (String file : imageFiles) {
-                    imageSelector.addItem(file);
-                }
-                
-                // Load first image if available
-                if (!imageFiles.isEmpty()) {
-                    SwingUtilities.invokeLater(() -> {
-                        imageSelector.setSelectedIndex(0);
-                    });
-                }
-            }
+        if (!Files.exists(IMAGE_DIR)) {
+            return;
+        }
+        List<String> imageFiles;
+        try (Stream<Path> entries = Files.list(IMAGE_DIR)) {
+            imageFiles = entries
+                .filter(Files::isRegularFile)
+                .map(path -> path.getFileName().toString())
+                .filter(name -> name.toLowerCase().endsWith(".png") || 
+                               name.toLowerCase().endsWith(".jpg") || 
+                               name.toLowerCase().endsWith(".gif"))
+                .collect(Collectors.toList());
         } catch (IOException e) {
-            statusLabel.setText("Error loading image list: " + e.getMessage());
+            SwingUtilities.invokeLater(() -> statusLabel.setText("Error loading image list: " + e.getMessage()));
+            return;
         }
+
+        SwingUtilities.invokeLater(() -> {
+            grid.setImages(imageFiles);
+            imageSelector.removeAllItems();
+            // Add images to selector; adding the first one selects and loads it
+            for (String file : imageFiles) {
+                imageSelector.addItem(file);
+            }
+        });
     }
     
+    // Decoding and stats run in the background; only the latest selection is shown
     private void loadImage(String imageName) {
-        try {
-            String imagePath = "src/main/resources/images/" + imageName;
-            currentImage = ImageIO.read(new File(imagePath));
-            
-            // Calculate RGB average
-            String rgbAvg = ImagePixelParser.rgbAverage(imageName);
-            if (rgbAvg != null) {
-                statusLabel.setText("Loaded: " + imageName + " - RGB Average: " + rgbAvg);
+        statusLabel.setText("Loading: " + imageName);
+        sprites.setScreen(imagePanel.getGraphicsConfiguration());
+        sprites.select(imageName, neighbours(imageSelector.getSelectedIndex()), sprite -> {
+            currentImage = sprite.getImage();
+            currentRegions = sprite.getRegions();
+            ColorStats stats = sprite.getStats();
+            if (stats.hasAverage()) {
+                statusLabel.setText("Loaded: " + imageName + " - RGB Average: " + stats.toRgbString());
             } else {
                 statusLabel.setText("Loaded: " + imageName);
             }
             
             // Repaint to show the image
             imagePanel.repaint();
-            
-        } catch (IOException e) {
-            statusLabel.setText("Error loading image: " + e.getMessage());
+        }, e -> statusLabel.setText("Error loading image: " + e.getMessage()));
+    }
+
+    // Entries next to the selection, nearest first, to decode before they are asked for
+    private List<String> neighbours(int selected) {
+        List<String> names = new ArrayList<>();
+        for (int distance = 1; distance <= PREFETCH_DISTANCE; distance++) {
+            for (int index : new int[] {selected + distance, selected - distance}) {
+                if (selected >= 0 && index >= 0 && index < imageSelector.getItemCount()) {
+                    names.add(imageSelector.getItemAt(index));
+                }
+            }
         }
+        return names;
     }
     
     public static void main(String[] args) {
@@ -0,0 +1,85 @@
+package com.mycompany.app.view;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Recently shown sprites, least recently used first out, held through soft references.
+ *
+ * The cache keeps at most maxBytes of pixels and region tables; on top of that the
+ * garbage collector may clear any entry when the heap runs short, so a long browsing
+ * session never pins more memory than the viewer can spare. Thread-safe.
+ */
+class SpriteCache {
+    private final long maxBytes;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReferenceQueue<SpriteLoader.Sprite> cleared = new ReferenceQueue<>();
+    private long bytes;
+
+    SpriteCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    synchronized SpriteLoader.Sprite get(String name) {
+        purgeCleared();
+        Entry entry = entries.get(name);
+        return entry == null ? null : entry.get();
+    }
+
+    synchronized void put(String name, SpriteLoader.Sprite sprite) {
+        purgeCleared();
+        Entry previous = entries.put(name, new Entry(name, sprite, cleared));
+        if (previous != null) {
+            bytes -= previous.bytes;
+        }
+        bytes += sizeOf(sprite);
+        // Evict from the least recently used end, but never the sprite just added
+        Iterator<Entry> oldest = entries.values().iterator();
+        while (bytes > maxBytes && entries.size() > 1) {
+            Entry entry = oldest.next();
+            oldest.remove();
+            bytes -= entry.bytes;
+        }
+    }
+
+    synchronized int size() {
+        purgeCleared();
+        return entries.size();
+    }
+
+    synchronized long getBytes() {
+        purgeCleared();
+        return bytes;
+    }
+
+    // Drop entries whose sprite the collector reclaimed
+    private void purgeCleared() {
+        for (Object ref; (ref = cleared.poll()) != null;) {
+            Entry entry = (Entry) ref;
+            if (entries.get(entry.name) == entry) {
+                entries.remove(entry.name);
+                bytes -= entry.bytes;
+            }
+        }
+    }
+
+    // Pixels at 4 bytes each, plus the region tables
+    static long sizeOf(SpriteLoader.Sprite sprite) {
+        return 4L * sprite.getImage().getWidth() * sprite.getImage().getHeight()
+            + sprite.getRegions().getMemoryBytes();
+    }
+
+    private static final class Entry extends SoftReference<SpriteLoader.Sprite> {
+        final String name;
+        final long bytes;
+
+        Entry(String name, SpriteLoader.Sprite sprite, ReferenceQueue<SpriteLoader.Sprite> queue) {
+            super(sprite, queue);
+            this.name = name;
+            this.bytes = sizeOf(sprite);
+        }
+    }
+}
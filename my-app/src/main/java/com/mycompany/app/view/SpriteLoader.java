@@ -0,0 +1,223 @@
+package com.mycompany.app.view;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import javax.swing.SwingUtilities;
+
+import com.mycompany.app.service.ColorStats;
+import com.mycompany.app.service.ImagePixelParser;
+import com.mycompany.app.service.ImageSource;
+import com.mycompany.app.service.RegionStats;
+
+/**
+ * Loads sprites for the viewer off the event dispatch thread.
+ *
+ * Each file is decoded once: color stats and region tables are computed on the decoded
+ * image, which is then copied into an image compatible with the screen so Java2D can
+ * keep it in video memory and draw it without conversion. Results go through a SpriteCache.
+ *
+ * Only the latest selection counts. Every call to select takes a new ticket; work
+ * for an older ticket is skipped if it has not started and dropped if it has, so
+ * scrolling through the list never paints a sprite the user already moved past. Once
+ * a selection is shown, its neighbours in the list are decoded on a low-priority thread
+ * so stepping to them is instant.
+ */
+class SpriteLoader {
+    private final Path imageDir;
+    private final SpriteCache cache;
+    private final ThreadPoolExecutor selections = daemonExecutor("sprite-loader", Thread.NORM_PRIORITY);
+    private final ThreadPoolExecutor prefetches = daemonExecutor("sprite-prefetch", Thread.MIN_PRIORITY);
+    private final AtomicLong ticket = new AtomicLong();
+    // Sprites being decoded right now, so selection and prefetch never decode one twice
+    private final Map<String, CompletableFuture<Sprite>> loading = new ConcurrentHashMap<>();
+    private volatile GraphicsConfiguration screen;
+
+    SpriteLoader(Path imageDir, SpriteCache cache) {
+        this.imageDir = imageDir;
+        this.cache = cache;
+    }
+
+    /** Screen the sprites are drawn on, or null to keep them as decoded. */
+    void setScreen(GraphicsConfiguration screen) {
+        this.screen = screen;
+    }
+
+    /**
+     * Shows the named sprite: onLoaded runs on the EDT with it, or onError with the
+     * failure, unless another selection was made in the meantime. Neighbours are
+     * prefetched afterwards. Call on the EDT.
+     */
+    void select(String name, List<String> neighbours, Consumer<Sprite> onLoaded, Consumer<Exception> onError) {
+        long current = ticket.incrementAndGet();
+        prefetches.getQueue().clear(); // neighbours of the previous selection
+        Sprite cached = cache.get(name);
+        if (cached != null) {
+            onLoaded.accept(cached);
+            prefetch(neighbours);
+            return;
+        }
+        selections.getQueue().clear();
+        selections.execute(() -> {
+            if (ticket.get() != current) {
+                return;
+            }
+            try {
+                Sprite sprite = load(name);
+                SwingUtilities.invokeLater(() -> {
+                    if (ticket.get() == current) {
+                        onLoaded.accept(sprite);
+                    }
+                });
+                prefetch(neighbours);
+            } catch (IOException | RuntimeException e) {
+                SwingUtilities.invokeLater(() -> {
+                    if (ticket.get() == current) {
+                        onError.accept(e);
+                    }
+                });
+            }
+        });
+    }
+
+    private void prefetch(List<String> names) {
+        for (String name : names) {
+            prefetches.execute(() -> {
+                try {
+                    load(name);
+                } catch (IOException | RuntimeException e) {
+                    // Reported if and when the sprite is actually selected
+                }
+            });
+        }
+    }
+
+    /**
+     * Cached sprite, or decode, analyse and convert it once and cache the result. A sprite
+     * already being loaded by the other thread is waited for rather than decoded again.
+     */
+    Sprite load(String name) throws IOException {
+        Sprite sprite = cache.get(name);
+        if (sprite != null) {
+            return sprite;
+        }
+        CompletableFuture<Sprite> mine = new CompletableFuture<>();
+        CompletableFuture<Sprite> running = loading.putIfAbsent(name, mine);
+        if (running != null) {
+            return await(running);
+        }
+        try {
+            // It may have been cached between the first look and claiming the load
+            sprite = cache.get(name);
+            if (sprite == null) {
+                sprite = decode(name);
+                cache.put(name, sprite);
+            }
+            mine.complete(sprite);
+            return sprite;
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(name, mine);
+        }
+    }
+
+    private Sprite decode(String name) throws IOException {
+        BufferedImage decoded;
+        try (InputStream in = ImageSource.file(imageDir.resolve(name)).open()) {
+            decoded = ImagePixelParser.decode(in);
+        }
+        if (decoded == null) {
+            throw new IOException("Unsupported image format: " + name);
+        }
+        ColorStats stats = ImagePixelParser.colorStats(decoded);
+        return new Sprite(name, toCompatible(decoded), stats, RegionStats.of(decoded));
+    }
+
+    private static Sprite await(CompletableFuture<Sprite> load) throws IOException {
+        try {
+            return load.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a sprite");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    private BufferedImage toCompatible(BufferedImage image) {
+        GraphicsConfiguration config = screen;
+        if (config == null || config.getColorModel(Transparency.TRANSLUCENT).equals(image.getColorModel())) {
+            return image;
+        }
+        BufferedImage compatible = config.createCompatibleImage(image.getWidth(), image.getHeight(),
+            Transparency.TRANSLUCENT);
+        Graphics2D g = compatible.createGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return compatible;
+    }
+
+    private static ThreadPoolExecutor daemonExecutor(String name, int priority) {
+        return new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), task -> {
+            Thread thread = new Thread(task, name);
+            thread.setDaemon(true);
+            thread.setPriority(priority);
+            return thread;
+        });
+    }
+
+    /**
+     * A decoded sprite ready to draw, with the color stats of its pixels and region
+     * tables for averaging the area under the cursor.
+     */
+    static final class Sprite {
+        private final String name;
+        private final BufferedImage image;
+        private final ColorStats stats;
+        private final RegionStats regions;
+
+        Sprite(String name, BufferedImage image, ColorStats stats, RegionStats regions) {
+            this.name = name;
+            this.image = image;
+            this.stats = stats;
+            this.regions = regions;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        BufferedImage getImage() {
+            return image;
+        }
+
+        ColorStats getStats() {
+            return stats;
+        }
+
+        RegionStats getRegions() {
+            return regions;
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package com.mycompany.app.view;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.swing.JComponent;
+import javax.swing.JList;
+import javax.swing.ListCellRenderer;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
+
+import com.mycompany.app.service.ColorIndex;
+
+/**
+ * Grid of every sprite in the image directory, for browsing catalogues too large for
+ * a combo box.
+ *
+ * Cells have a fixed size, so JList lays out thousands of entries without measuring
+ * them and paints only the visible ones. A visible cell without a thumbnail asks for one
+ * on a small background pool. Each thumbnail comes from the packed ThumbnailStore
+ * when the file is unchanged; otherwise the image is decoded, subsampled if large, and
+ * the thumbnail is written back. Requests for cells that scrolled out of view
+ * before their turn are dropped. At most MEMORY_THUMBNAILS thumbnails stay in memory,
+ * whatever the size of the catalogue.
+ *
+ * Each tile is filled with the image's average color from the binary index, so the grid
+ * is useful even before its thumbnails arrive.
+ */
+class ThumbnailGrid extends JList<String> {
+    private static final long serialVersionUID = 1L;
+    static final int THUMBNAIL_SIZE = 64;
+    private static final int CELL_WIDTH = 88;
+    private static final int CELL_HEIGHT = 92;
+    /** Thumbnails kept in memory, about 16 KB each. */
+    private static final int MEMORY_THUMBNAILS = 1024;
+    /** Cells beyond the visible ones still worth loading, about a screenful of scrolling. */
+    private static final int VISIBLE_MARGIN = 48;
+    /** Stands in for images that could not be read, so they are not retried on every paint. */
+    private static final BufferedImage UNREADABLE = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+
+    private final Path imageDir;
+    private final ThumbnailStore store;
+    private final Map<String, BufferedImage> thumbnails = Collections.synchronizedMap(
+        new LinkedHashMap<String, BufferedImage>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BufferedImage> eldest) {
+                return size() > MEMORY_THUMBNAILS;
+            }
+        });
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor loaders;
+    private volatile int firstVisible;
+    private volatile int lastVisible = -1;
+    // Only touched on the EDT
+    private Map<String, Integer> averageColors = Collections.emptyMap();
+
+    /** @param store persisted thumbnails, or null to keep them in memory only */
+    ThumbnailGrid(Path imageDir, ThumbnailStore store) {
+        this.imageDir = imageDir;
+        this.store = store;
+        int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+        AtomicInteger count = new AtomicInteger();
+        this.loaders = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), task -> {
+                Thread thread = new Thread(task, "thumbnail-loader-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+
+        setLayoutOrientation(JList.HORIZONTAL_WRAP);
+        setVisibleRowCount(-1);
+        setFixedCellWidth(CELL_WIDTH);
+        setFixedCellHeight(CELL_HEIGHT);
+        setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        setBackground(Color.DARK_GRAY);
+        setCellRenderer(new TileRenderer());
+    }
+
+    /** Replaces the listed images. Call on the EDT. */
+    void setImages(List<String> names) {
+        loaders.getQueue().clear();
+        // The dropped loads never run to clear their names, which would keep them from being
+        // asked for again; a load still running only removes its own name when it ends
+        pending.clear();
+        thumbnails.clear();
+        setListData(names.toArray(new String[0]));
+    }
+
+    /** Average colors to fill the tiles with, see {@link #averageColors(ColorIndex)}. Call on the EDT. */
+    void setAverageColors(Map<String, Integer> colors) {
+        averageColors = colors;
+        repaint();
+    }
+
+    /** File name to average 0xRRGGBB for every image in the index. Safe to call off the EDT. */
+    static Map<String, Integer> averageColors(ColorIndex index) {
+        Map<String, Integer> colors = new HashMap<>(index.size() * 2);
+        for (int i = 0; i < index.size(); i++) {
+            colors.put(index.name(i), index.rgb(i));
+        }
+        return colors;
+    }
+
+    /**
+     * Stops loading thumbnails and closes the store without blocking the caller, which is
+     * usually the EDT. A separate thread closes the store once running loads finish:
+     * interrupting them would close the store's channel under them. Safe to call more than once.
+     */
+    void close() {
+        if (loaders.isShutdown()) {
+            return;
+        }
+        loaders.getQueue().clear();
+        loaders.shutdown();
+        if (store == null) {
+            return;
+        }
+        Thread closer = new Thread(() -> {
+            try {
+                loaders.awaitTermination(2, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            // A load still running past the wait just fails to save its thumbnail
+            try {
+                store.close();
+            } catch (IOException e) {
+                System.err.println("Could not close the thumbnail store: " + e.getMessage());
+            }
+        }, "thumbnail-store-closer");
+        closer.start();
+    }
+
+    /** Whether the named thumbnail is in memory, or known to be unreadable. */
+    boolean hasThumbnail(String name) {
+        return thumbnails.containsKey(name);
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return new Dimension(CELL_WIDTH * 3, CELL_HEIGHT * 5);
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return CELL_HEIGHT / 2;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        // Cells are about to be rendered; tell the loaders which ones matter
+        firstVisible = getFirstVisibleIndex();
+        lastVisible = getLastVisibleIndex();
+        super.paintComponent(g);
+    }
+
+    // Thumbnail if it is in memory; otherwise null, and one is loaded in the background
+    private BufferedImage thumbnail(int index, String name) {
+        BufferedImage thumbnail = thumbnails.get(name);
+        if (thumbnail == null && !loaders.isShutdown() && pending.add(name)) {
+            loaders.execute(() -> load(index, name));
+        }
+        return thumbnail == UNREADABLE ? null : thumbnail;
+    }
+
+    private void load(int index, String name) {
+        if (index < firstVisible - VISIBLE_MARGIN || index > lastVisible + VISIBLE_MARGIN) {
+            pending.remove(name); // scrolled away; asked for again if it comes back into view
+            return;
+        }
+        BufferedImage thumbnail;
+        try {
+            Path file = imageDir.resolve(name);
+            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            long modified = attrs.lastModifiedTime().toMillis();
+            thumbnail = store == null ? null : store.get(name, attrs.size(), modified);
+            if (thumbnail == null) {
+                thumbnail = createThumbnail(file, THUMBNAIL_SIZE);
+                if (thumbnail != null && store != null) {
+                    persist(name, attrs, thumbnail);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            thumbnail = null;
+        }
+        thumbnails.put(name, thumbnail == null ? UNREADABLE : thumbnail);
+        pending.remove(name);
+        SwingUtilities.invokeLater(() -> {
+            if (index < getModel().getSize() && name.equals(getModel().getElementAt(index))) {
+                Rectangle cell = getCellBounds(index, index);
+                if (cell != null) {
+                    repaint(cell);
+                }
+            }
+        });
+    }
+
+    private void persist(String name, BasicFileAttributes attrs, BufferedImage thumbnail) {
+        try {
+            store.put(name, attrs.size(), attrs.lastModifiedTime().toMillis(), thumbnail);
+        } catch (IOException e) {
+            System.err.println("Could not save thumbnail of " + name + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Decodes the image and scales it to fit size x size. Large images are decoded with
+     * source subsampling, so a big render costs little more than a sprite. Null when no
+     * reader understands the file.
+     */
+    static BufferedImage createThumbnail(Path file, int size) throws IOException {
+        BufferedImage image;
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                // Keep at least twice the thumbnail size so the final scale can still smooth
+                int step = Math.max(1, Math.min(reader.getWidth(0), reader.getHeight(0)) / (size * 2));
+                param.setSourceSubsampling(step, step, 0, 0);
+                image = reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+
+        double scale = Math.min(1.0, Math.min((double) size / image.getWidth(), (double) size / image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = thumbnail.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(image, 0, 0, width, height, null);
+        g.dispose();
+        return thumbnail;
+    }
+
+    /**
+     * Paints one tile: the average color as background, the thumbnail and the file name.
+     * A single instance renders every cell.
+     */
+    private final class TileRenderer extends JComponent implements ListCellRenderer<String> {
+        private static final long serialVersionUID = 1L;
+
+        private String name;
+        private BufferedImage image;
+        private Color fill;
+        private boolean selected;
+
+        @Override
+        public Component getListCellRendererComponent(JList<? extends String> list, String value, int index,
+                boolean isSelected, boolean cellHasFocus) {
+            name = value;
+            image = thumbnail(index, value);
+            Integer rgb = averageColors.get(value);
+            fill = rgb == null ? Color.GRAY : new Color(rgb);
+            selected = isSelected;
+            return this;
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            int width = getWidth();
+            int height = getHeight();
+            g.setColor(fill);
+            g.fillRect(2, 2, width - 4, height - 4);
+            if (image != null) {
+                g.drawImage(image, (width - image.getWidth()) / 2, 4 + (THUMBNAIL_SIZE - image.getHeight()) / 2,
+                    null);
+            }
+            // Dark text on light averages, light text on dark ones
+            int luma = (fill.getRed() * 299 + fill.getGreen() * 587 + fill.getBlue() * 114) / 1000;
+            g.setColor(luma > 140 ? Color.BLACK : Color.WHITE);
+            String label = name;
+            int labelWidth = g.getFontMetrics().stringWidth(label);
+            while (labelWidth > width - 6 && label.length() > 1) {
+                label = label.substring(0, label.length() - 1);
+                labelWidth = g.getFontMetrics().stringWidth(label + "…");
+            }
+            if (!label.equals(name)) {
+                label += "…";
+            }
+            g.drawString(label, (width - labelWidth) / 2, height - 6);
+            if (selected) {
+                g.setColor(Color.ORANGE);
+                g.drawRect(1, 1, width - 3, height - 3);
+                g.drawRect(2, 2, width - 5, height - 5);
+            }
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.mycompany.app.view;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Thumbnails persisted in one packed file, so a relaunched viewer can fill its grid
+ * without decoding a single source image.
+ *
+ * <pre>
+ * header  int magic 'PKTH', int version, int thumbnail size
+ * record  short name length, UTF-8 name, long file size, long last modified,
+ *         short width, short height, width * height int ARGB pixels
+ * </pre>
+ * Records are only ever appended; a thumbnail for a changed image is written again and
+ * the later record wins. Opening the file reads the record headers and skips the
+ * pixels, so only the small name-to-offset table lives in memory. A record cut short
+ * by a crash is truncated away on the next open, and once superseded records make up
+ * more than MAX_DEAD_SHARE of the file, the open also rewrites it with only the live
+ * ones, so the file does not grow without bound as images change. Thread-safe.
+ */
+class ThumbnailStore implements AutoCloseable {
+    /** Cache next to image_info.bin. */
+    static final Path DEFAULT_PATH = Paths.get("image_thumbnails.bin");
+
+    private static final int MAGIC = 0x504b5448; // "PKTH"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    /** Share of the file taken by superseded records above which opening compacts it. */
+    static final double MAX_DEAD_SHARE = 0.25;
+
+    private final Path file;
+    private FileChannel channel;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private long end;
+    // Bytes of the records in entries; the rest past the header is superseded
+    private long liveBytes;
+
+    /** Opens the store, starting a new file if it is missing or was written for another thumbnail size. */
+    ThumbnailStore(Path file, int thumbnailSize) throws IOException {
+        this.file = file;
+        channel = open(file);
+        try {
+            if (!readIndex(thumbnailSize)) {
+                channel.truncate(0);
+                channel.write(header(thumbnailSize), 0);
+                entries.clear();
+                end = HEADER_SIZE;
+                liveBytes = 0;
+            } else if (end - HEADER_SIZE - liveBytes > MAX_DEAD_SHARE * end) {
+                compact(thumbnailSize);
+            } else if (channel.size() > end) {
+                channel.truncate(end);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** Stored thumbnail of the file, or null when there is none for this size and modification time. */
+    BufferedImage get(String name, long fileSize, long lastModified) throws IOException {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(name);
+        }
+        if (entry == null || entry.fileSize != fileSize || entry.lastModified != lastModified) {
+            return null;
+        }
+        BufferedImage image = new BufferedImage(entry.width, entry.height, BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        ByteBuffer bytes = ByteBuffer.allocate(pixels.length * 4);
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes, entry.pixelOffset + bytes.position()) < 0) {
+                throw new EOFException("Thumbnail store truncated at " + name);
+            }
+        }
+        bytes.flip();
+        bytes.asIntBuffer().get(pixels);
+        return image;
+    }
+
+    /** Appends a thumbnail; it replaces any earlier one for the same name. */
+    void put(String name, long fileSize, long lastModified, BufferedImage thumbnail) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        int width = thumbnail.getWidth();
+        int height = thumbnail.getHeight();
+        int[] pixels = thumbnail.getRGB(0, 0, width, height, null, 0, width);
+        int headerBytes = 2 + nameBytes.length + 8 + 8 + 2 + 2;
+        ByteBuffer record = ByteBuffer.allocate(headerBytes + pixels.length * 4);
+        record.putShort((short) nameBytes.length).put(nameBytes).putLong(fileSize).putLong(lastModified)
+            .putShort((short) width).putShort((short) height);
+        record.asIntBuffer().put(pixels);
+        record.position(0);
+
+        synchronized (this) {
+            long offset = end;
+            while (record.hasRemaining()) {
+                channel.write(record, offset + record.position());
+            }
+            end = offset + record.capacity();
+            add(name, new Entry(fileSize, lastModified, width, height, offset, offset + headerBytes));
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /** Length of the file, including superseded records not yet compacted away. */
+    synchronized long fileSize() {
+        return end;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Reads every record header; false when the file is new or unusable
+    private boolean readIndex(int thumbnailSize) throws IOException {
+        if (channel.size() < HEADER_SIZE) {
+            return false;
+        }
+        InputStream stream = Channels.newInputStream(channel.position(0));
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 1 << 16));
+        if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != thumbnailSize) {
+            return false;
+        }
+        long offset = HEADER_SIZE;
+        long size = channel.size();
+        try {
+            while (offset < size) {
+                int nameLength = in.readUnsignedShort();
+                byte[] name = new byte[nameLength];
+                in.readFully(name);
+                long fileSize = in.readLong();
+                long lastModified = in.readLong();
+                int width = in.readUnsignedShort();
+                int height = in.readUnsignedShort();
+                long pixelOffset = offset + 2 + nameLength + 8 + 8 + 2 + 2;
+                long recordEnd = pixelOffset + 4L * width * height;
+                if (recordEnd > size) {
+                    break;
+                }
+                in.skipNBytes(recordEnd - pixelOffset);
+                add(new String(name, StandardCharsets.UTF_8),
+                    new Entry(fileSize, lastModified, width, height, offset, pixelOffset));
+                offset = recordEnd;
+            }
+        } catch (EOFException e) {
+            // Last record was cut short; keep everything before it
+        }
+        end = offset;
+        return true;
+    }
+
+    private void add(String name, Entry entry) {
+        Entry previous = entries.put(name, entry);
+        if (previous != null) {
+            liveBytes -= previous.length();
+        }
+        liveBytes += entry.length();
+    }
+
+    // Copies the live records, in file order, to a new file that then replaces this one
+    private void compact(int thumbnailSize) throws IOException {
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        List<Map.Entry<String, Entry>> live = new ArrayList<>(entries.entrySet());
+        live.sort(Comparator.comparingLong(e -> e.getValue().recordOffset));
+        try (FileChannel out = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.write(header(thumbnailSize), 0);
+            long offset = HEADER_SIZE;
+            for (Map.Entry<String, Entry> e : live) {
+                Entry entry = e.getValue();
+                long length = entry.length();
+                for (long copied = 0; copied < length;) {
+                    copied += channel.transferTo(entry.recordOffset + copied, length - copied,
+                        out.position(offset + copied));
+                }
+                e.setValue(entry.movedTo(offset));
+                offset += length;
+            }
+            end = offset;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        channel.close();
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = open(file);
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private static ByteBuffer header(int thumbnailSize) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(thumbnailSize).flip();
+        return header;
+    }
+
+    private static final class Entry {
+        final long fileSize;
+        final long lastModified;
+        final int width;
+        final int height;
+        final long recordOffset;
+        final long pixelOffset;
+
+        Entry(long fileSize, long lastModified, int width, int height, long recordOffset, long pixelOffset) {
+            this.fileSize = fileSize;
+            this.lastModified = lastModified;
+            this.width = width;
+            this.height = height;
+            this.recordOffset = recordOffset;
+            this.pixelOffset = pixelOffset;
+        }
+
+        long length() {
+            return pixelOffset - recordOffset + 4L * width * height;
+        }
+
+        Entry movedTo(long offset) {
+            return new Entry(fileSize, lastModified, width, height, offset, offset + pixelOffset - recordOffset);
+        }
+    }
+}
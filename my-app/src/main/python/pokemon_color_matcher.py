@@ -3,6 +3,7 @@ import json
 import os
 import subprocess
 import math
+import urllib.request
 from PyQt5.QtWidgets import (QApplication, QMainWindow, QLabel, QPushButton, 
                              QVBoxLayout, QHBoxLayout, QWidget, QFrame, QScrollArea,
                              QMessageBox)
@@ -37,6 +38,10 @@ class PokemonColorMatcher(QMainWindow):
         # Pokemon data - Fix paths to match the project structure
         self.json_path = resource_path("image_info.json")
         self.image_dir = resource_path("images")
+        self.pokemon_data = []
+
+        # Java match server (App started with "serve"); the JSON scan is only the fallback
+        self.match_server = "http://127.0.0.1:8765"
         
         # UI Setup
         self.init_ui()
@@ -135,21 +140,16 @@ class PokemonColorMatcher(QMainWindow):
         if not check_java():
             return
         
-        flag_exists = os.path.exists("documentPokemon.flag")
-        
-        if not flag_exists:
-            # Run Java application to initialize
-            try:
-                result = subprocess.run(
-                    ["java", "-cp", "target/my-app-1.0-SNAPSHOT.jar", "com.mycompany.app.App"],
-                    capture_output=True,
-                    text=True
-                )
-                self.status_bar.showMessage("Pokemon database initialized successfully")
-            except Exception as e:
-                self.status_bar.showMessage(f"Error initializing Pokemon database: {str(e)}")
-        else:
-            self.status_bar.showMessage("Pokemon database already initialized")
+        # Run Java application to update the database; it only re-indexes new or changed images
+        try:
+            result = subprocess.run(
+                ["java", "-cp", "target/my-app-1.0-SNAPSHOT.jar", "com.mycompany.app.App"],
+                capture_output=True,
+                text=True
+            )
+            self.status_bar.showMessage("Pokemon database initialized successfully")
+        except Exception as e:
+            self.status_bar.showMessage(f"Error initializing Pokemon database: {str(e)}")
         
         # Load JSON data
         self.load_pokemon_data()
@@ -197,8 +197,25 @@ class PokemonColorMatcher(QMainWindow):
         
         # Removed right-click check since we're using space bar instead
     
+    def match_from_server(self):
+        """Ask the Java match server for the closest Pokemon; None when it is not running"""
+        color = self.last_color
+        url = f"{self.match_server}/match?rgb=R{color.red()}G{color.green()}B{color.blue()}"
+        try:
+            with urllib.request.urlopen(url, timeout=0.25) as response:
+                matches = json.load(response)["results"][0]["matches"]
+        except Exception:
+            return None
+        return matches[0] if matches else None
+
     def find_matching_pokemon(self):
         """Find the Pokemon with the closest average RGB value"""
+        if self.last_color:
+            match = self.match_from_server()
+            if match:
+                self.display_match(match, match["distance"])
+                return
+
         if not self.pokemon_data or not self.last_color:
             self.status_bar.showMessage("No Pokemon data loaded or no color detected")
             return
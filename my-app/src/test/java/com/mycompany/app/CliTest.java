@@ -0,0 +1,82 @@
+package com.mycompany.app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.mycompany.app.service.ColorIndex;
+import com.mycompany.app.service.ColorStats;
+import com.mycompany.app.service.ImageRecord;
+
+/**
+ * Unit tests for the Cli commands.
+ */
+public class CliTest {
+
+    @TempDir
+    Path dir;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    @Test
+    public void matchesColorsAgainstTheBinaryIndex() throws IOException {
+        Path index = dir.resolve("image_info.bin");
+        ColorIndex.write(index, List.of(
+            new ImageRecord("bulbasaur.png", "/a/bulbasaur.png", 10, 0, 0, ColorStats.ofUniformColor(8, 8, 64, 120, 200, 90)),
+            new ImageRecord("charmander.png", "/a/charmander.png", 10, 0, 0, ColorStats.ofUniformColor(8, 8, 64, 240, 128, 48))));
+
+        assertEquals(Cli.OK, run("match", "R121G200B90", "#f08030", "--k", "1", "--index", index.toString()));
+        assertEquals("R121G200B90\tbulbasaur.png\tR120G200B90\t1.0%nR240G128B48\tcharmander.png\tR240G128B48\t0.0%n"
+            .formatted(), output());
+
+        assertEquals(Cli.USAGE, run("match", "R999G0B0", "--index", index.toString()));
+        assertEquals(Cli.FAILED, run("match", "R1G2B3", "--index", dir.resolve("missing.bin").toString()));
+    }
+
+    @Test
+    public void printsStatsAndRunsCommandFiles() throws IOException {
+        BufferedImage image = new BufferedImage(4, 2, BufferedImage.TYPE_INT_ARGB);
+        for (int x = 0; x < 4; x++) {
+            image.setRGB(x, 0, 0xff_ff0000);
+        }
+        Path png = dir.resolve("red.png");
+        ImageIO.write(image, "png", png.toFile());
+        Path commands = dir.resolve("commands.txt");
+        Files.writeString(commands, "# comment\n\nstats " + png + "\n");
+
+        assertEquals(Cli.OK, run("@" + commands));
+        // Name, average, size, opaque pixels, then the palette as color:weight
+        assertTrue(output().startsWith(png + "\tR255G0B0\t4x2\t4\t"), output());
+        assertTrue(output().endsWith(":1.0" + System.lineSeparator()), output());
+
+        assertEquals(Cli.FAILED, run("stats", dir.resolve("missing.png").toString()));
+        assertEquals(Cli.USAGE, run());
+        assertEquals(Cli.USAGE, run("index", "--shard", "4/4", "images"));
+        assertEquals(Cli.USAGE, run("serve"));
+        assertTrue(err.toString(StandardCharsets.UTF_8).contains("Usage"));
+    }
+
+    private int run(String... args) {
+        out.reset();
+        return Cli.run(List.of(args), new PrintStream(out, true, StandardCharsets.UTF_8),
+            new PrintStream(err, true, StandardCharsets.UTF_8));
+    }
+
+    private String output() {
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,95 @@
+package com.mycompany.app.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for BatchMatcher, checked against single ColorMatcher queries.
+ */
+public class BatchMatcherTest {
+
+    @Test
+    public void perSampleMatchesSingleQueries() {
+        Random random = new Random(31);
+        ColorMatcher matcher = randomMatcher(random, 500);
+        // Few distinct colors repeated many times, plus non-opaque samples, over several chunks
+        int[] palette = new int[300];
+        for (int i = 0; i < palette.length; i++) {
+            palette[i] = random.nextInt();
+        }
+        int[] samples = new int[70000];
+        for (int i = 0; i < samples.length; i++) {
+            int color = palette[random.nextInt(palette.length)];
+            samples[i] = random.nextInt(10) == 0 ? color : 0xff000000 | color;
+        }
+
+        int[] ids = new BatchMatcher(matcher).nearest(samples, ColorMetric.DELTA_E76);
+
+        for (int i = 0; i < samples.length; i++) {
+            int expected = (samples[i] >>> 24) == 255 ? matcher.nearest(samples[i] & 0xffffff, ColorMetric.DELTA_E76) : -1;
+            assertEquals(expected, ids[i]);
+        }
+    }
+
+    @Test
+    public void imagesMatchTheirPixels() {
+        Random random = new Random(33);
+        BatchMatcher batch = new BatchMatcher(randomMatcher(random, 100));
+        for (int type : new int[] {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_4BYTE_ABGR}) {
+            BufferedImage image = new BufferedImage(40, 20, type);
+            for (int y = 0; y < 20; y++) {
+                for (int x = 0; x < 40; x++) {
+                    image.setRGB(x, y, random.nextInt());
+                }
+            }
+            int[] pixels = image.getRGB(0, 0, 40, 20, null, 0, 40);
+            assertArrayEquals(batch.nearest(pixels, ColorMetric.RGB), batch.nearest(image, ColorMetric.RGB));
+        }
+    }
+
+    @Test
+    public void perTileMatchesTileAverages() {
+        Random random = new Random(32);
+        ColorMatcher matcher = randomMatcher(random, 200);
+        BufferedImage frame = new BufferedImage(50, 30, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < frame.getHeight(); y++) {
+            for (int x = 0; x < frame.getWidth(); x++) {
+                frame.setRGB(x, y, x < 16 && y < 16 ? 0 : 0xff000000 | random.nextInt(0x1000000));
+            }
+        }
+
+        BatchMatcher.TileMatches tiles = new BatchMatcher(matcher).nearestPerTile(frame, 16, ColorMetric.RGB);
+
+        assertEquals(4, tiles.getColumns());
+        assertEquals(2, tiles.getRows());
+        assertEquals(-1, tiles.id(0, 0)); // fully transparent tile
+        for (int row = 0; row < tiles.getRows(); row++) {
+            for (int column = 0; column < tiles.getColumns(); column++) {
+                if (column == 0 && row == 0) {
+                    continue;
+                }
+                int x = column * 16;
+                int y = row * 16;
+                BufferedImage tile = frame.getSubimage(x, y, Math.min(16, 50 - x), Math.min(16, 30 - y));
+                int average = ImagePixelParser.colorStats(tile).getAverageRgb();
+                assertEquals(average, tiles.average(column, row));
+                assertEquals(matcher.nearest(average), tiles.id(column, row));
+            }
+        }
+    }
+
+    private static ColorMatcher randomMatcher(Random random, int size) {
+        int[] ids = new int[size];
+        int[] colors = new int[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = i;
+            colors[i] = random.nextInt(0x1000000);
+        }
+        return new ColorMatcher(ids, colors);
+    }
+}
@@ -0,0 +1,107 @@
+package com.mycompany.app.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Unit tests for the image_info.json schema and how CatalogueWriter replaces the file.
+ */
+public class CatalogueWriterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void writesTheSchemaThePythonMatcherReads() throws IOException {
+        Path file = dir.resolve("image_info.json");
+        try (CatalogueWriter catalogue = new CatalogueWriter(file)) {
+            catalogue.write(new ImageRecord("bulbasaur.png", "/a/bulbasaur.png", 10, 0, 0,
+                ColorStats.ofUniformColor(8, 8, 64, 120, 200, 90)));
+            catalogue.write(new ImageRecord("missingno.png", "/a/missingno.png", 3, 0, 0, null));
+            catalogue.commit();
+        }
+
+        JsonObject document = JsonParser.parseString(Files.readString(file)).getAsJsonObject();
+        assertEquals(Set.of("generatedAt", "images", "totalImages"), document.keySet());
+        assertEquals(2, document.get("totalImages").getAsInt());
+        JsonArray images = document.getAsJsonArray("images");
+        assertEquals(2, images.size());
+
+        JsonObject bulbasaur = images.get(0).getAsJsonObject();
+        assertEquals(Set.of("fileName", "filePath", "fileSize", "width", "height", "rgbAverage", "linearRgbAverage",
+            "labAverage", "palette", "histogram"), bulbasaur.keySet());
+        assertEquals("bulbasaur.png", bulbasaur.get("fileName").getAsString());
+        assertEquals("/a/bulbasaur.png", bulbasaur.get("filePath").getAsString());
+        assertEquals(10, bulbasaur.get("fileSize").getAsLong());
+        assertEquals(8, bulbasaur.get("width").getAsInt());
+        assertEquals("R120G200B90", bulbasaur.get("rgbAverage").getAsString());
+        assertEquals(3, bulbasaur.getAsJsonArray("linearRgbAverage").size());
+        assertEquals(3, bulbasaur.getAsJsonArray("labAverage").size());
+        assertEquals(ColorHistogram.SIZE, bulbasaur.getAsJsonArray("histogram").size());
+        JsonObject swatch = bulbasaur.getAsJsonArray("palette").get(0).getAsJsonObject();
+        assertEquals(Set.of("rgb", "weight"), swatch.keySet());
+
+        // Images that could not be decoded keep only their file details
+        assertEquals(Set.of("fileName", "filePath", "fileSize"), images.get(1).getAsJsonObject().keySet());
+    }
+
+    @Test
+    public void replacesTheCatalogueOnlyOnCommit() throws IOException {
+        Path file = dir.resolve("image_info.json");
+        Files.writeString(file, "previous");
+
+        try (CatalogueWriter catalogue = new CatalogueWriter(file)) {
+            catalogue.write(new ImageRecord("bulbasaur.png", "/a/bulbasaur.png", 10, 0, 0,
+                ColorStats.ofUniformColor(8, 8, 64, 120, 200, 90)));
+            // Not committed, as when indexing fails part way
+        }
+        assertEquals("previous", Files.readString(file));
+        assertFalse(Files.exists(dir.resolve("image_info.json.tmp")));
+
+        try (CatalogueWriter catalogue = new CatalogueWriter(file)) {
+            catalogue.commit();
+        }
+        assertTrue(Files.readString(file).contains("\"totalImages\": 0"));
+        assertFalse(Files.exists(dir.resolve("image_info.json.tmp")));
+    }
+
+    @Test
+    public void indexRunPublishesNeitherOutputWhenOneFails() throws IOException {
+        Path images = Files.createDirectory(dir.resolve("images"));
+        BufferedImage image = new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+        ImageIO.write(image, "png", images.resolve("a.png").toFile());
+        Path catalogue = dir.resolve("image_info.json");
+        Path binaryIndex = dir.resolve("image_info.bin");
+        Path manifest = dir.resolve("image_manifest.json");
+        assertTrue(DocumentPokemon.index(images, catalogue, binaryIndex, manifest, 1, 1));
+        byte[] previousCatalogue = Files.readAllBytes(catalogue);
+        byte[] previousIndex = Files.readAllBytes(binaryIndex);
+
+        // A new image, but the binary index cannot be written
+        ImageIO.write(image, "png", images.resolve("b.png").toFile());
+        Files.createDirectory(dir.resolve("image_info.bin.tmp"));
+        assertFalse(DocumentPokemon.index(images, catalogue, binaryIndex, manifest, 1, 1));
+
+        assertArrayEquals(previousCatalogue, Files.readAllBytes(catalogue));
+        assertArrayEquals(previousIndex, Files.readAllBytes(binaryIndex));
+        assertEquals(1, IndexManifest.load(manifest).size());
+        assertFalse(Files.exists(dir.resolve("image_info.json.tmp")));
+    }
+}
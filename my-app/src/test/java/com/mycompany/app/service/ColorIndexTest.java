@@ -0,0 +1,90 @@
+package com.mycompany.app.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for ColorIndex.
+ */
+public class ColorIndexTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void roundTripsRecordsThroughMappedFile() throws IOException {
+        Path file = dir.resolve("image_info.bin");
+        ColorIndex.write(file, List.of(
+            new ImageRecord("bulbasaur.png", "/a/bulbasaur.png", 10, 0, 0, ColorStats.ofUniformColor(96, 80, 100, 120, 200, 90)),
+            new ImageRecord("ghost-ゴース.png", "/a/ghost.png", 10, 0, 0, ColorStats.ofUniformColor(64, 64, 0, 0, 0, 0)),
+            new ImageRecord("broken.png", "/a/broken.png", 10, 0, 0, null)));
+
+        ColorIndex index = ColorIndex.open(file);
+
+        assertEquals(3, index.size());
+        assertTrue(index.hasAverage(0));
+        assertEquals(0x78c85a, index.rgb(0));
+        assertEquals(96, index.width(0));
+        assertEquals(80, index.height(0));
+        assertEquals("bulbasaur.png", index.name(0));
+        assertFalse(index.hasAverage(1));
+        assertEquals("ghost-ゴース.png", index.name(1));
+        assertFalse(index.hasAverage(2));
+        assertEquals("broken.png", index.name(2));
+
+        float[] signatures = new float[3 * ColorHistogram.SIZE];
+        for (int i = 0; i < 3; i++) {
+            index.signature(i, signatures, i * ColorHistogram.SIZE);
+        }
+        assertEquals(1f, signatures[ColorHistogram.binOf(0x78c85a)]);
+        assertEquals(1f, sum(signatures));
+    }
+
+    @Test
+    public void streamingWriterMatchesBulkWrite() throws IOException {
+        List<ImageRecord> records = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) { // past the writer's buffers
+            ColorStats stats = i % 7 == 0 ? null : ColorStats.ofUniformColor(i % 100, 3, i % 5, i, i * 3, i * 7);
+            records.add(new ImageRecord("sprite-" + i + ".png", "/a/" + i, 10, 0, 0, stats));
+        }
+        Path bulk = dir.resolve("bulk.bin");
+        ColorIndex.write(bulk, records);
+        Path streamed = dir.resolve("streamed.bin");
+        try (ColorIndex.Writer writer = ColorIndex.writer(streamed)) {
+            for (ImageRecord record : records) {
+                writer.write(record);
+            }
+            writer.commit();
+        }
+
+        assertArrayEquals(Files.readAllBytes(bulk), Files.readAllBytes(streamed));
+        assertEquals(List.of("bulk.bin", "streamed.bin"), listNames());
+    }
+
+    private List<String> listNames() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static float sum(float[] values) {
+        float sum = 0;
+        for (float value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,122 @@
+package com.mycompany.app.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Unit tests for ColorMatcher, checked against a brute force scan.
+ */
+public class ColorMatcherTest {
+
+    @Test
+    public void nearestMatchesLinearScan() {
+        Random random = new Random(11);
+        int[] colors = randomColors(random, 5000);
+        ColorMatcher matcher = new ColorMatcher(ids(colors.length), colors);
+
+        for (int q = 0; q < 2000; q++) {
+            int query = random.nextInt(0x1000000);
+            double expected = Double.MAX_VALUE;
+            for (int color : colors) {
+                expected = Math.min(expected, ColorMatcher.distance(color, query));
+            }
+            assertEquals(expected, ColorMatcher.distance(colors[matcher.nearest(query)], query), 1e-9);
+        }
+    }
+
+    @Test
+    public void topKMatchesLinearScan() {
+        Random random = new Random(12);
+        int[] colors = randomColors(random, 3000);
+        ColorMatcher matcher = new ColorMatcher(ids(colors.length), colors);
+
+        for (int q = 0; q < 200; q++) {
+            int query = random.nextInt(0x1000000);
+            int[] actual = matcher.nearest(query, 10);
+            int[] expected = bruteForce(colors, query, 10);
+            assertArrayEquals(distances(colors, expected, query), distances(colors, actual, query), 1e-9);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(ColorMetric.class)
+    public void perceptualMetricsMatchLinearScan(ColorMetric metric) {
+        Random random = new Random(13);
+        int[] colors = randomColors(random, 2000);
+        ColorMatcher matcher = new ColorMatcher(ids(colors.length), colors);
+
+        for (int q = 0; q < 300; q++) {
+            int query = random.nextInt(0x1000000);
+            float[] queryLab = ColorSpaces.rgbToLab(query);
+            double expected = Double.MAX_VALUE;
+            for (int color : colors) {
+                expected = Math.min(expected, metric.distance(query, queryLab, color, ColorSpaces.rgbToLab(color)));
+            }
+            ColorMatcher.Match best = matcher.match(query, 1, metric)[0];
+            assertEquals(expected, best.getDistance(), 1e-3);
+        }
+    }
+
+    @Test
+    public void handlesDuplicatesAndSmallSets() {
+        int[] colors = new int[200];
+        Arrays.fill(colors, 0x336699);
+        colors[123] = 0xff0000;
+        ColorMatcher matcher = new ColorMatcher(ids(colors.length), colors);
+
+        assertEquals(123, matcher.nearest(0xfe0101));
+        assertEquals(3, new ColorMatcher(ids(3), new int[] {1, 2, 3}).nearest(0, 10).length);
+        assertEquals(-1, new ColorMatcher(new int[0], new int[0]).nearest(0));
+    }
+
+    @Test
+    public void parsesColorFormats() {
+        assertEquals(0x78c85a, ColorMatcher.parseColor("R120G200B90"));
+        assertEquals(0x78c85a, ColorMatcher.parseColor("78c85a"));
+        assertEquals(0x78c85a, ColorMatcher.parseColor("#78C85A"));
+        assertEquals(0x78c85a, ColorMatcher.parseColor(" 120, 200, 90 "));
+        assertEquals(0x000000, ColorMatcher.parseColor("000000"));
+        assertEquals("R120G200B90", ColorMatcher.toRgbString(0x78c85a));
+        assertThrows(IllegalArgumentException.class, () -> ColorMatcher.parseColor("R300G0B0"));
+        assertThrows(IllegalArgumentException.class, () -> ColorMatcher.parseColor("-12345"));
+        assertThrows(IllegalArgumentException.class, () -> ColorMatcher.parseColor("#+12345"));
+        assertThrows(IllegalArgumentException.class, () -> ColorMatcher.parseColor("78c85g"));
+    }
+
+    private static int[] randomColors(Random random, int count) {
+        int[] colors = new int[count];
+        for (int i = 0; i < count; i++) {
+            colors[i] = random.nextInt(0x1000000);
+        }
+        return colors;
+    }
+
+    private static int[] ids(int count) {
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = i;
+        }
+        return ids;
+    }
+
+    private static int[] bruteForce(int[] colors, int query, int k) {
+        return Arrays.stream(ids(colors.length)).boxed()
+            .sorted(Comparator.comparingDouble(i -> ColorMatcher.distance(colors[i], query)))
+            .limit(k)
+            .mapToInt(Integer::intValue)
+            .toArray();
+    }
+
+    private static double[] distances(int[] colors, int[] ids, int query) {
+        return Arrays.stream(ids).mapToDouble(i -> ColorMatcher.distance(colors[i], query)).toArray();
+    }
+}
@@ -0,0 +1,55 @@
+package com.mycompany.app.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/**
+ * Unit tests for ColorSpaces.
+ */
+public class ColorSpacesTest {
+
+    @Test
+    public void convertsReferenceColorsToLab() {
+        assertLab(ColorSpaces.rgbToLab(0xffffff), 100, 0, 0);
+        assertLab(ColorSpaces.rgbToLab(0x000000), 0, 0, 0);
+        assertLab(ColorSpaces.rgbToLab(0xff0000), 53.24f, 80.09f, 67.20f);
+        assertLab(ColorSpaces.rgbToLab(0x00ff00), 87.73f, -86.18f, 83.18f);
+        assertLab(ColorSpaces.rgbToLab(0x0000ff), 32.30f, 79.19f, -107.86f);
+        assertLab(ColorSpaces.rgbToLab(0x808080), 53.59f, 0, 0);
+    }
+
+    // Test pairs from Sharma, Wu and Dalal, "The CIEDE2000 Color-Difference Formula" (2005)
+    @ParameterizedTest
+    @CsvSource({
+        "50.0000, 2.6772, -79.7751, 50.0000, 0.0000, -82.7485, 2.0425",
+        "50.0000, -1.0000, 2.0000, 50.0000, 0.0000, 0.0000, 2.3669",
+        "50.0000, 2.4900, -0.0010, 50.0000, -2.4900, 0.0011, 7.2195",
+        "60.2574, -34.0099, 36.2677, 60.4626, -34.1751, 39.4387, 1.2644",
+        "90.8027, -2.0831, 1.4410, 91.1528, -1.6435, 0.0447, 1.4441",
+        "2.0776, 0.0795, -1.1350, 0.9033, -0.0636, -0.5514, 0.9082"
+    })
+    public void deltaE2000MatchesPublishedPairs(float l1, float a1, float b1, float l2, float a2, float b2,
+            double expected) {
+        assertEquals(expected, ColorSpaces.deltaE2000(l1, a1, b1, l2, a2, b2), 1e-4);
+        assertEquals(expected, ColorSpaces.deltaE2000(l2, a2, b2, l1, a1, b1), 1e-4);
+    }
+
+    @Test
+    public void deltaE94NeverExceedsDeltaE76() {
+        float[] red = ColorSpaces.rgbToLab(0xc03020);
+        float[] orange = ColorSpaces.rgbToLab(0xe08030);
+        double e76 = ColorSpaces.deltaE76(red[0], red[1], red[2], orange[0], orange[1], orange[2]);
+        double e94 = ColorSpaces.deltaE94(red[0], red[1], red[2], orange[0], orange[1], orange[2]);
+        assertEquals(true, e94 <= e76);
+        assertEquals(0, ColorSpaces.deltaE94(red[0], red[1], red[2], red[0], red[1], red[2]), 1e-9);
+    }
+
+    private static void assertLab(float[] lab, float l, float a, float b) {
+        assertEquals(l, lab[0], 0.05);
+        assertEquals(a, lab[1], 0.05);
+        assertEquals(b, lab[2], 0.05);
+    }
+}
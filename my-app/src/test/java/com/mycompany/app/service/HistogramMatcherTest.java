@@ -0,0 +1,134 @@
+package com.mycompany.app.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Unit tests for HistogramMatcher and the signatures it ranks.
+ */
+public class HistogramMatcherTest {
+
+    @Test
+    public void signatureCountsOnlyOpaquePixels() {
+        BufferedImage image = new BufferedImage(4, 1, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, 0xff_ff0000);
+        image.setRGB(1, 0, 0xff_ff0000);
+        image.setRGB(2, 0, 0xff_0000ff);
+        image.setRGB(3, 0, 0x80_00ff00);
+
+        float[] signature = ColorHistogram.of(image);
+
+        assertEquals(ColorHistogram.SIZE, signature.length);
+        assertEquals(2 / 3f, signature[ColorHistogram.binOf(0xff0000)], 1e-6);
+        assertEquals(1 / 3f, signature[ColorHistogram.binOf(0x0000ff)], 1e-6);
+        assertEquals(0f, signature[ColorHistogram.binOf(0x00ff00)]);
+    }
+
+    @Test
+    public void signatureBinsEveryChannelLikeBinOf() {
+        // Green varies too, e.g. 06121e is bin 0 by its top two bits per channel
+        assertEquals(0, ColorHistogram.binOf(0x06121e));
+        Random random = new Random(10);
+        for (int i = 0; i < 2000; i++) {
+            int rgb = random.nextInt(0x1000000);
+            BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+            image.setRGB(0, 0, 0xff000000 | rgb);
+            assertArrayEquals(ColorHistogram.ofColor(rgb), ColorHistogram.of(image), Integer.toHexString(rgb));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(HistogramMetric.class)
+    public void rankingMatchesLinearScan(HistogramMetric metric) {
+        Random random = new Random(21);
+        int count = 2000;
+        float[] signatures = new float[count * ColorHistogram.SIZE];
+        for (int i = 0; i < count; i++) {
+            float[] signature = randomSignature(random);
+            System.arraycopy(signature, 0, signatures, i * ColorHistogram.SIZE, ColorHistogram.SIZE);
+        }
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = i;
+        }
+        HistogramMatcher matcher = new HistogramMatcher(ids, new int[count], signatures);
+
+        for (int q = 0; q < 50; q++) {
+            float[] query = randomSignature(random);
+            float[] row = new float[ColorHistogram.SIZE];
+            float expected = Float.MAX_VALUE;
+            for (int i = 0; i < count; i++) {
+                System.arraycopy(signatures, i * ColorHistogram.SIZE, row, 0, ColorHistogram.SIZE);
+                expected = Math.min(expected, metric.distance(query, row));
+            }
+            ColorMatcher.Match[] matches = matcher.match(query, 5, metric);
+            assertEquals(5, matches.length);
+            assertEquals(expected, matches[0].getDistance(), 1e-6);
+            for (int i = 1; i < matches.length; i++) {
+                assertTrue(matches[i - 1].getDistance() <= matches[i].getDistance());
+            }
+        }
+    }
+
+    @Test
+    public void regionOfASpriteFindsThatSprite() {
+        List<ImageRecord> records = new ArrayList<>();
+        BufferedImage target = null;
+        int[][] palettes = {{0xff0000, 0x00ff00}, {0x0000ff, 0xffff00}, {0xff0000, 0x0000ff}, {0x000000, 0xffffff}};
+        for (int p = 0; p < palettes.length; p++) {
+            BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+            for (int x = 0; x < 8; x++) {
+                for (int y = 0; y < 8; y++) {
+                    image.setRGB(x, y, palettes[p][(x + y) % 2]);
+                }
+            }
+            if (p == 2) {
+                target = image;
+            }
+            records.add(new ImageRecord("sprite" + p + ".png", "/sprite" + p + ".png", 0, 0, 0,
+                ImagePixelParser.colorStats(image)));
+        }
+        HistogramMatcher matcher = HistogramMatcher.fromRecords(records);
+
+        float[] query = ColorHistogram.of(target, 2, 2, 4, 4);
+
+        for (HistogramMetric metric : HistogramMetric.values()) {
+            ColorMatcher.Match best = matcher.match(query, 1, metric)[0];
+            assertEquals(2, best.getId());
+            assertEquals(0f, best.getDistance(), 1e-6);
+        }
+    }
+
+    @Test
+    public void parsesMetricNames() {
+        assertEquals(HistogramMetric.INTERSECTION, HistogramMetric.parse("intersection"));
+        assertEquals(HistogramMetric.CHI_SQUARE, HistogramMetric.parse("chi-square"));
+        assertEquals(HistogramMetric.CHI_SQUARE, HistogramMetric.parse("CHI_SQUARE"));
+        assertEquals(HistogramMetric.CHI_SQUARE, HistogramMetric.parse("chi2"));
+    }
+
+    private static float[] randomSignature(Random random) {
+        // A few occupied bins, like a sprite with a handful of colors
+        float[] signature = new float[ColorHistogram.SIZE];
+        float total = 0;
+        for (int i = 0; i < 4; i++) {
+            float weight = random.nextFloat();
+            signature[random.nextInt(ColorHistogram.SIZE)] += weight;
+            total += weight;
+        }
+        for (int bin = 0; bin < signature.length; bin++) {
+            signature[bin] /= total;
+        }
+        return signature;
+    }
+}
@@ -0,0 +1,119 @@
+package com.mycompany.app.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Unit tests for ImagePixelParser.
+ */
+public class ImagePixelParserTest {
+
+    @Test
+    public void averagesOnlyOpaquePixels() {
+        BufferedImage image = new BufferedImage(2, 2, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, 0xff_ff0000);
+        image.setRGB(1, 0, 0xff_0000ff);
+        image.setRGB(0, 1, 0x80_00ff00); // half transparent, ignored
+        image.setRGB(1, 1, 0x00_000000); // fully transparent, ignored
+
+        ColorStats stats = ImagePixelParser.colorStats(image);
+
+        assertEquals(2, stats.getWidth());
+        assertEquals(2, stats.getHeight());
+        assertEquals(2, stats.getOpaquePixels());
+        assertEquals("R127G0B127", stats.toRgbString());
+    }
+
+    @Test
+    public void fullyTransparentImageHasNoAverage() {
+        BufferedImage image = new BufferedImage(3, 3, BufferedImage.TYPE_INT_ARGB);
+
+        ColorStats stats = ImagePixelParser.colorStats(image);
+
+        assertFalse(stats.hasAverage());
+        assertNull(stats.toRgbString());
+    }
+
+    @Test
+    public void computesPerceptualMeans() {
+        BufferedImage image = new BufferedImage(2, 1, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, 0xff_000000);
+        image.setRGB(1, 0, 0xff_ffffff);
+
+        ColorStats stats = ImagePixelParser.colorStats(image);
+
+        // Half black, half white: the sRGB average is mid gray, but linear light and Lab
+        // average the two ends
+        assertEquals("R127G127B127", stats.toRgbString());
+        assertEquals(0.5f, stats.getLinearRed(), 1e-4);
+        assertEquals(0.5f, stats.getLinearBlue(), 1e-4);
+        assertEquals(50f, stats.getLabL(), 0.01);
+        assertEquals(0f, stats.getLabA(), 0.01);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {
+        BufferedImage.TYPE_INT_ARGB,
+        BufferedImage.TYPE_INT_RGB,
+        BufferedImage.TYPE_4BYTE_ABGR,
+        BufferedImage.TYPE_3BYTE_BGR,
+        BufferedImage.TYPE_BYTE_INDEXED,
+        BufferedImage.TYPE_INT_ARGB_PRE
+    })
+    public void fastPathMatchesGenericPath(int type) {
+        BufferedImage image = randomImage(new BufferedImage(37, 23, type));
+
+        assertStatsEqual(ImagePixelParser.genericColorStats(image), ImagePixelParser.colorStats(image));
+
+        // Sub-images share the parent's buffer with an offset
+        BufferedImage sub = image.getSubimage(5, 3, 20, 15);
+        assertStatsEqual(ImagePixelParser.genericColorStats(sub), ImagePixelParser.colorStats(sub));
+    }
+
+    @Test
+    public void packedPaletteMatchesGenericPath() {
+        byte[] channel = new byte[16];
+        for (int i = 0; i < channel.length; i++) {
+            channel[i] = (byte) (i * 17);
+        }
+        IndexColorModel palette = new IndexColorModel(4, 16, channel, channel, channel, 0);
+        BufferedImage image = randomImage(new BufferedImage(31, 9, BufferedImage.TYPE_BYTE_BINARY, palette));
+
+        assertStatsEqual(ImagePixelParser.genericColorStats(image), ImagePixelParser.colorStats(image));
+
+        BufferedImage sub = image.getSubimage(3, 2, 17, 5);
+        assertStatsEqual(ImagePixelParser.genericColorStats(sub), ImagePixelParser.colorStats(sub));
+    }
+
+    private static BufferedImage randomImage(BufferedImage image) {
+        Random random = new Random(42);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                // Mix of opaque, translucent and fully transparent pixels
+                int alpha = random.nextInt(3) == 0 ? random.nextInt(255) : 255;
+                image.setRGB(x, y, (alpha << 24) | random.nextInt(0x1000000));
+            }
+        }
+        return image;
+    }
+
+    private static void assertStatsEqual(ColorStats expected, ColorStats actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        assertEquals(expected.getOpaquePixels(), actual.getOpaquePixels());
+        assertEquals(expected.toRgbString(), actual.toRgbString());
+        assertEquals(expected.getLinearGreen(), actual.getLinearGreen(), 1e-5);
+        assertEquals(expected.getLabL(), actual.getLabL(), 1e-3);
+        assertEquals(expected.getLabB(), actual.getLabB(), 1e-3);
+        assertEquals(expected.getPalette(), actual.getPalette());
+    }
+}
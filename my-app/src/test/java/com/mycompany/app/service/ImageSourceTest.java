@@ -0,0 +1,166 @@
+package com.mycompany.app.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for ImageSource and its directory, archive and path list sources.
+ */
+public class ImageSourceTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void walksDirectoriesAndReadsPathLists() throws IOException {
+        Path images = Files.createDirectory(dir.resolve("images"));
+        Files.write(images.resolve("bulbasaur.png"), png(0xff_40a040));
+        Path gen2 = Files.createDirectories(images.resolve("gen2"));
+        Files.write(gen2.resolve("chikorita.png"), png(0xff_80c040));
+
+        try (ImageSource source = ImageSource.open(images.toString())) {
+            List<ImageSource.Entry> entries = source.list();
+            assertEquals(List.of("bulbasaur.png", "chikorita.png"),
+                entries.stream().map(ImageSource.Entry::getName).collect(Collectors.toList()));
+            assertEquals(gen2.resolve("chikorita.png").toAbsolutePath().toString(), entries.get(1).getLocation());
+        }
+
+        String list = images.resolve("bulbasaur.png") + "\n\n" + images.resolve("missing.png") + "\n";
+        try (ImageSource source = ImageSource.pathList(new ByteArrayInputStream(list.getBytes(StandardCharsets.UTF_8)))) {
+            List<ImageSource.Entry> entries = source.list();
+            assertEquals(1, entries.size());
+            assertEquals("bulbasaur.png", entries.get(0).getName());
+        }
+    }
+
+    @Test
+    public void readsZipAndTarEntriesInPlace() throws IOException {
+        Map<String, byte[]> files = new TreeMap<>();
+        files.put("gen1/charmander.png", png(0xff_f08030));
+        files.put("gen1/" + "very-long-directory-name/".repeat(5) + "squirtle.png", png(0xff_3090f0));
+        files.put("readme.txt", "sprites".getBytes(StandardCharsets.UTF_8));
+
+        Path zip = dir.resolve("sprites.zip");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+            for (Map.Entry<String, byte[]> file : files.entrySet()) {
+                out.putNextEntry(new ZipEntry(file.getKey()));
+                out.write(file.getValue());
+            }
+        }
+        Path tar = dir.resolve("sprites.tar");
+        Files.write(tar, tar(files));
+
+        for (Path archive : List.of(zip, tar)) {
+            try (ImageSource source = ImageSource.open(archive.toString())) {
+                List<ImageSource.Entry> entries = source.list();
+                assertEquals(3, entries.size(), archive.toString());
+                for (ImageSource.Entry entry : entries) {
+                    String path = entry.getLocation().substring(entry.getLocation().indexOf("!/") + 2);
+                    assertEquals(archive.toAbsolutePath() + "!/" + path, entry.getLocation());
+                    byte[] expected = files.get(path);
+                    assertNotNull(expected, path);
+                    assertEquals(expected.length, entry.getSize());
+                    try (InputStream in = entry.open()) {
+                        assertEquals(IndexManifest.hash(expected), IndexManifest.hash(in));
+                    }
+                }
+
+                ImageSource.Entry squirtle = entries.stream()
+                    .filter(entry -> entry.getName().equals("squirtle.png")).findFirst().get();
+                ImageRecord record = IndexingEngine.analyse(squirtle, new IndexingMetrics());
+                assertEquals("R48G144B240", record.getStats().toRgbString());
+                assertEquals(IndexManifest.hash(files.get(squirtle.getLocation()
+                    .substring(squirtle.getLocation().indexOf("!/") + 2))), record.getContentHash());
+            }
+        }
+    }
+
+    @Test
+    public void indexesAnArchiveAndReusesItsRecords() throws IOException {
+        Path zip = dir.resolve("sprites.zip");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+            out.putNextEntry(new ZipEntry("pikachu.png"));
+            out.write(png(0xff_f8d030));
+        }
+        Path manifestPath = dir.resolve("image_manifest.json");
+        try (ImageSource source = ImageSource.open(zip.toString())) {
+            DocumentPokemon.index(source, dir.resolve("image_info.json"), dir.resolve("image_info.bin"),
+                manifestPath, 2, 4);
+        }
+
+        IndexManifest manifest = IndexManifest.load(manifestPath);
+        assertEquals(1, manifest.size());
+        try (ImageSource source = ImageSource.open(zip.toString())) {
+            ImageRecord reused = manifest.reuse(source.list().get(0));
+            assertNotNull(reused);
+            assertEquals("R248G208B48", reused.getStats().toRgbString());
+        }
+        assertTrue(Files.readString(dir.resolve("image_info.json")).contains("sprites.zip!/pikachu.png"));
+    }
+
+    private static byte[] png(int argb) throws IOException {
+        BufferedImage image = new BufferedImage(4, 4, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 4; y++) {
+            for (int x = 0; x < 4; x++) {
+                image.setRGB(x, y, argb);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    // Minimal ustar writer; names past 100 bytes go in a GNU long name entry
+    private static byte[] tar(Map<String, byte[]> files) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (Map.Entry<String, byte[]> file : files.entrySet()) {
+            byte[] name = file.getKey().getBytes(StandardCharsets.UTF_8);
+            if (name.length > 100) {
+                writeEntry(out, "././@LongLink".getBytes(StandardCharsets.UTF_8), 'L', name);
+                name = new byte[] {'x'};
+            }
+            writeEntry(out, name, '0', file.getValue());
+        }
+        out.write(new byte[1024]);
+        return out.toByteArray();
+    }
+
+    private static void writeEntry(OutputStream out, byte[] name, char type, byte[] data) throws IOException {
+        byte[] header = new byte[512];
+        System.arraycopy(name, 0, header, 0, name.length);
+        octal(header, 124, 12, data.length);
+        octal(header, 136, 12, 1_600_000_000L);
+        header[156] = (byte) type;
+        System.arraycopy("ustar\0".getBytes(StandardCharsets.US_ASCII), 0, header, 257, 6);
+        out.write(header);
+        out.write(data);
+        out.write(new byte[(512 - data.length % 512) % 512]);
+    }
+
+    private static void octal(byte[] header, int offset, int length, long value) {
+        String digits = String.format("%0" + (length - 1) + "o", value);
+        System.arraycopy(digits.getBytes(StandardCharsets.US_ASCII), 0, header, offset, length - 1);
+    }
+}
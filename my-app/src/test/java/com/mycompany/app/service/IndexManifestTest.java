@@ -0,0 +1,122 @@
+package com.mycompany.app.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Set;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for IndexManifest.
+ */
+public class IndexManifestTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void reusesUnchangedAndTouchedFilesButNotEditedOnes() throws IOException {
+        Path image = dir.resolve("pikachu.png");
+        Files.write(image, new byte[] {1, 2, 3, 4});
+        IndexManifest manifest = new IndexManifest();
+        manifest.put(record(image));
+
+        assertNotNull(manifest.reuse(image));
+
+        // Touched but identical contents: reused with the new modification time
+        FileTime later = FileTime.fromMillis(Files.getLastModifiedTime(image).toMillis() + 5000);
+        Files.setLastModifiedTime(image, later);
+        assertEquals(later.toMillis(), manifest.reuse(image).getLastModified());
+
+        // Same size, different contents
+        Files.write(image, new byte[] {4, 3, 2, 1});
+        Files.setLastModifiedTime(image, FileTime.fromMillis(later.toMillis() + 5000));
+        assertNull(manifest.reuse(image));
+    }
+
+    @Test
+    public void treatsTouchedFilesThatCannotBeReadAsChanged() throws IOException {
+        Path image = dir.resolve("pikachu.png");
+        Files.write(image, new byte[] {1, 2, 3, 4});
+        IndexManifest manifest = new IndexManifest();
+        ImageRecord stored = record(image);
+        manifest.put(stored);
+
+        // Modification time changed, so reuse hashes it, but it is gone by then
+        ImageSource.Entry gone = new ImageSource.Entry("pikachu.png", stored.getFilePath(), stored.getFileSize(),
+                stored.getLastModified() + 5000) {
+            @Override
+            public InputStream open() throws IOException {
+                throw new NoSuchFileException(stored.getFilePath());
+            }
+        };
+        assertNull(manifest.reuse(gone));
+    }
+
+    @Test
+    public void roundTripsThroughDiskAndDropsDeletedFiles() throws IOException {
+        Path kept = dir.resolve("kept.png");
+        Path deleted = dir.resolve("deleted.png");
+        Files.write(kept, new byte[] {7});
+        Files.write(deleted, new byte[] {8});
+        IndexManifest manifest = new IndexManifest();
+        manifest.put(record(kept));
+        manifest.put(record(deleted));
+
+        assertEquals(1, manifest.retainAll(Set.of(kept.toAbsolutePath().toString())));
+        Path file = dir.resolve("manifest.json");
+        manifest.save(file);
+
+        IndexManifest loaded = IndexManifest.load(file);
+        assertEquals(1, loaded.size());
+        ImageRecord record = loaded.get(kept.toAbsolutePath().toString());
+        assertEquals("R10G20B30", record.getStats().toRgbString());
+        assertEquals(record(kept).getStats().getPalette(), record.getStats().getPalette());
+        assertNotNull(loaded.reuse(kept));
+    }
+
+    @Test
+    public void dropsChangedFilesThatNoLongerDecode() throws IOException {
+        Path images = Files.createDirectory(dir.resolve("images"));
+        BufferedImage image = new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+        ImageIO.write(image, "png", images.resolve("kept.png").toFile());
+        ImageIO.write(image, "png", images.resolve("broken.png").toFile());
+        Path catalogue = dir.resolve("image_info.json");
+        Path binaryIndex = dir.resolve("image_info.bin");
+        Path manifestPath = dir.resolve("image_manifest.json");
+        assertTrue(DocumentPokemon.index(images, catalogue, binaryIndex, manifestPath, 1, 1));
+        assertEquals(2, ColorIndex.open(binaryIndex).size());
+
+        // Truncated: it changed and now fails to decode, so its old record must go too
+        byte[] bytes = Files.readAllBytes(images.resolve("broken.png"));
+        Files.write(images.resolve("broken.png"), Arrays.copyOf(bytes, bytes.length / 2));
+        assertTrue(DocumentPokemon.index(images, catalogue, binaryIndex, manifestPath, 1, 1));
+
+        assertEquals(1, IndexManifest.load(manifestPath).size());
+        ColorIndex index = ColorIndex.open(binaryIndex);
+        assertEquals(1, index.size());
+        assertEquals("kept.png", index.name(0));
+        assertTrue(Files.readString(catalogue).contains("\"totalImages\": 1"));
+    }
+
+    private static ImageRecord record(Path file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        return new ImageRecord(file.getFileName().toString(), file.toAbsolutePath().toString(), bytes.length,
+            Files.getLastModifiedTime(file).toMillis(), IndexManifest.hash(bytes),
+            ColorStats.ofUniformColor(4, 4, 16, 10, 20, 30));
+    }
+}
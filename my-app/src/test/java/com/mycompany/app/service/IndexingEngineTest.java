@@ -0,0 +1,117 @@
+package com.mycompany.app.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for IndexingEngine's in-flight bound and failure handling.
+ */
+public class IndexingEngineTest {
+
+    @Test
+    public void rejectsAnInFlightBoundBelowTheWorkerCount() {
+        assertThrows(IllegalArgumentException.class, () -> new IndexingEngine(4, 3));
+        assertThrows(IllegalArgumentException.class, () -> new IndexingEngine(0, 4));
+        assertEquals(4, new IndexingEngine(4, 4).getMaxInFlight());
+    }
+
+    @Test
+    public void neverHasMoreThanMaxInFlightImagesLive() throws IOException {
+        byte[] png = png(0xff_3090f0);
+        // Live from the moment a worker opens the entry until the sink has taken its record
+        AtomicInteger live = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        List<ImageSource.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            entries.add(new ImageSource.Entry("sprite-" + i + ".png", "/sprites/sprite-" + i + ".png", png.length, 0) {
+                @Override
+                public InputStream open() {
+                    peak.accumulateAndGet(live.incrementAndGet(), Math::max);
+                    return new ByteArrayInputStream(png);
+                }
+            });
+        }
+
+        // The sink runs on the calling thread; slowing it lets finished work pile up if unbounded
+        IndexingEngine engine = new IndexingEngine(2, 3);
+        IndexingEngine.Report report = engine.index(entries, record -> {
+            sleep();
+            live.decrementAndGet();
+        });
+
+        assertEquals(40, report.getProcessed());
+        assertTrue(peak.get() <= 3, "peak in flight " + peak.get());
+        // One sample of the whole heap, so never above what the heap can hold
+        assertTrue(report.getPeakHeapBytes() > 0);
+        assertTrue(report.getPeakHeapBytes() <= Runtime.getRuntime().maxMemory(), report.toString());
+    }
+
+    @Test
+    public void countsFailedDecodesWithoutAbortingTheRun() throws IOException {
+        byte[] png = png(0xff_f08030);
+        byte[] truncated = new byte[png.length / 2];
+        System.arraycopy(png, 0, truncated, 0, truncated.length);
+        List<ImageSource.Entry> entries = new ArrayList<>();
+        entries.add(entry("charmander.png", png));
+        entries.add(entry("broken.png", truncated));
+        entries.add(new ImageSource.Entry("gone.png", "/sprites/gone.png", 0, 0) {
+            @Override
+            public InputStream open() throws IOException {
+                throw new IOException("No such file");
+            }
+        });
+        entries.add(entry("squirtle.png", png(0xff_3090f0)));
+
+        List<String> indexed = new ArrayList<>();
+        IndexingEngine engine = new IndexingEngine(2, 2);
+        IndexingEngine.Report report = engine.index(entries, record -> indexed.add(record.getFileName()));
+
+        assertEquals(2, report.getProcessed());
+        assertEquals(2, report.getFailed());
+        assertEquals(2, engine.getMetrics().getFailed());
+        assertEquals(List.of("charmander.png", "squirtle.png"), indexed.stream().sorted().toList());
+    }
+
+    private static ImageSource.Entry entry(String name, byte[] contents) {
+        return new ImageSource.Entry(name, "/sprites/" + name, contents.length, 0) {
+            @Override
+            public InputStream open() {
+                return new ByteArrayInputStream(contents);
+            }
+        };
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static byte[] png(int argb) throws IOException {
+        BufferedImage image = new BufferedImage(4, 4, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 4; y++) {
+            for (int x = 0; x < 4; x++) {
+                image.setRGB(x, y, argb);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,127 @@
+package com.mycompany.app.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for IndexingMetrics, its histogram, sinks and the progress reporter.
+ */
+public class IndexingMetricsTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void estimatesPercentilesWithinTheirBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(1_500_000); // 1.5 ms, bucket (1 ms, 2 ms]
+        }
+        histogram.record(300_000_000); // 300 ms, bucket (200 ms, 500 ms]
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(300_000_000, histogram.getMaxNanos());
+        long p50 = histogram.percentile(0.5);
+        assertTrue(p50 > 1_000_000 && p50 <= 2_000_000, "p50 " + p50);
+        long p99 = histogram.percentile(0.99);
+        assertTrue(p99 <= 2_000_000, "p99 " + p99);
+        assertEquals(300_000_000, histogram.percentile(1));
+        assertEquals(0, new LatencyHistogram().percentile(0.5));
+    }
+
+    @Test
+    public void writesCumulativePrometheusBuckets() {
+        IndexingMetrics metrics = new IndexingMetrics();
+        metrics.imageIndexed(15_000);      // 15 µs
+        metrics.imageIndexed(3_000_000);   // 3 ms
+        metrics.imageIndexed(20_000_000_000L); // past the last bound
+        metrics.imageFailed();
+        metrics.time(IndexingMetrics.Phase.DECODE, 2_500_000_000L);
+        // Whole seconds summed across workers keep their integer zeros
+        metrics.time(IndexingMetrics.Phase.READ, 100_000_000_000_000L);
+        metrics.time(IndexingMetrics.Phase.ANALYSE, 120_000_000_000_000L);
+
+        String text = PrometheusMetricsSink.format(metrics);
+        assertTrue(text.contains("pokemon_index_images_total 3\n"), text);
+        assertTrue(text.contains("pokemon_index_failures_total 1\n"), text);
+        assertTrue(text.contains("pokemon_index_phase_seconds_total{phase=\"decode\"} 2.5\n"), text);
+        assertTrue(text.contains("pokemon_index_phase_seconds_total{phase=\"read\"} 100000\n"), text);
+        assertTrue(text.contains("pokemon_index_phase_seconds_total{phase=\"analyse\"} 120000\n"), text);
+        assertTrue(text.contains("pokemon_index_image_seconds_bucket{le=\"1e-05\"} 0\n"), text);
+        assertTrue(text.contains("pokemon_index_image_seconds_bucket{le=\"2e-05\"} 1\n"), text);
+        assertTrue(text.contains("pokemon_index_image_seconds_bucket{le=\"0.005\"} 2\n"), text);
+        assertTrue(text.contains("pokemon_index_image_seconds_bucket{le=\"10\"} 2\n"), text);
+        assertTrue(text.contains("pokemon_index_image_seconds_bucket{le=\"+Inf\"} 3\n"), text);
+        assertTrue(text.contains("pokemon_index_image_seconds_count 3\n"), text);
+    }
+
+    @Test
+    public void parsesSinkLists() {
+        assertEquals(0, MetricsSink.parse("none").size());
+        assertEquals(3, MetricsSink.parse("log, jmx ,prometheus=" + dir.resolve("m.prom")).size());
+        assertThrows(IllegalArgumentException.class, () -> MetricsSink.parse("log,statsd"));
+    }
+
+    @Test
+    public void rateLimitsProgressLines() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, true, StandardCharsets.UTF_8);
+        ProgressReporter slow = new ProgressReporter(out, 60_000, 500);
+        for (int i = 0; i < 500; i++) {
+            slow.imageDone("pokemon-" + i + ".png");
+        }
+        slow.finish();
+        String lines = bytes.toString(StandardCharsets.UTF_8);
+        assertEquals(1, lines.lines().count(), lines);
+        assertTrue(lines.startsWith("Processed 500/500 images (100%)"), lines);
+
+        bytes.reset();
+        ProgressReporter everyImage = new ProgressReporter(out, 0, 2);
+        everyImage.imageDone("Bulbasaur.png");
+        everyImage.imageDone("Ivysaur.png");
+        everyImage.finish();
+        assertEquals("Processed image: bulbasaur.png%nProcessed image: ivysaur.png%n".formatted(),
+            bytes.toString(StandardCharsets.UTF_8));
+
+        assertEquals(-1, ProgressReporter.parseInterval(null));
+        assertEquals(1000, ProgressReporter.parseInterval("true"));
+        assertEquals(250, ProgressReporter.parseInterval("250"));
+    }
+
+    @Test
+    public void countsIndexedUnsupportedAndSkippedFiles() throws Exception {
+        Path images = Files.createDirectory(dir.resolve("images"));
+        ImageIO.write(new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB), "png", images.resolve("a.png").toFile());
+        ImageIO.write(new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB), "png", images.resolve("b.png").toFile());
+        Files.writeString(images.resolve("broken.png"), "not a png");
+        Files.writeString(images.resolve("notes.txt"), "not an image");
+        Path metricsFile = dir.resolve("metrics.prom");
+
+        System.setProperty("pokemon.metrics", "prometheus=" + metricsFile);
+        try {
+            DocumentPokemon.index(images, dir.resolve("image_info.json"), dir.resolve("image_info.bin"),
+                dir.resolve("image_manifest.json"), 2, 4);
+        } finally {
+            System.clearProperty("pokemon.metrics");
+        }
+
+        String text = Files.readString(metricsFile);
+        assertTrue(text.contains("pokemon_index_images_total 2\n"), text);
+        assertTrue(text.contains("pokemon_index_unsupported_total 1\n"), text);
+        assertTrue(text.contains("pokemon_index_skipped_files_total 1\n"), text);
+        assertTrue(text.contains("pokemon_index_image_seconds_count 2\n"), text);
+    }
+}
@@ -0,0 +1,158 @@
+package com.mycompany.app.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for MatchCache.
+ */
+public class MatchCacheTest {
+
+    @Test
+    public void exactCacheAgreesWithMatcherAndCounts() {
+        ColorMatcher matcher = randomMatcher(new Random(41), 300);
+        MatchCache cache = new MatchCache(matcher, 8, 128);
+        Random random = new Random(42);
+
+        for (int i = 0; i < 20000; i++) {
+            // Mostly a small working set, sometimes something new
+            int rgb = random.nextInt(4) == 0 ? random.nextInt(0x1000000) : random.nextInt(48) * 0x050301;
+            ColorMetric metric = random.nextBoolean() ? ColorMetric.RGB : ColorMetric.DELTA_E2000;
+            assertEquals(matcher.nearest(rgb, metric), cache.nearest(rgb, metric));
+        }
+
+        assertEquals(20000, cache.getHits() + cache.getMisses());
+        assertEquals(128, cache.size());
+        assertEquals(cache.getMisses() - 128, cache.getEvictions());
+        assertTrue(cache.getHitRate() > 0.5);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        ColorMatcher matcher = randomMatcher(new Random(43), 50);
+        MatchCache cache = new MatchCache(matcher, 8, 100);
+        // Reference LRU model
+        Map<Integer, Boolean> model = new LinkedHashMap<>(16, 0.75f, true);
+        Random random = new Random(44);
+
+        long expectedHits = 0;
+        for (int i = 0; i < 50000; i++) {
+            int rgb = random.nextInt(160);
+            if (model.get(rgb) != null) {
+                expectedHits++;
+            } else {
+                model.put(rgb, true);
+                if (model.size() > 100) {
+                    model.remove(model.keySet().iterator().next());
+                }
+            }
+            cache.nearest(rgb);
+        }
+
+        assertEquals(expectedHits, cache.getHits());
+    }
+
+    @Test
+    public void quantizedKeysShareTheCellCenterMatch() {
+        ColorMatcher matcher = randomMatcher(new Random(45), 500);
+        MatchCache cache = new MatchCache(matcher, 5, 1000);
+
+        int first = cache.nearest(0x10a0f0);
+        int second = cache.nearest(0x17a7f7); // same 5-bit cell
+
+        assertEquals(first, second);
+        assertEquals(matcher.nearest(0x14a4f4), first);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void missesAreMatchedOutsideTheLock() throws Exception {
+        // Each miss waits until another thread is matching at the same time
+        CyclicBarrier bothMatching = new CyclicBarrier(2);
+        ColorMatcher matcher = new ColorMatcher(new int[] {0, 1}, new int[] {0x000000, 0xffffff}) {
+            @Override
+            public int nearest(int rgb, ColorMetric metric) {
+                try {
+                    bothMatching.await(5, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IllegalStateException("misses were serialized", e);
+                }
+                return super.nearest(rgb, metric);
+            }
+        };
+        MatchCache cache = new MatchCache(matcher, 8, 16);
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> dark = pool.submit(() -> cache.nearest(0x101010));
+            Future<Integer> light = pool.submit(() -> cache.nearest(0xf0f0f0));
+            assertEquals(0, dark.get(10, TimeUnit.SECONDS));
+            assertEquals(1, light.get(10, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void staysConsistentUnderConcurrentLookups() throws Exception {
+        ColorMatcher matcher = randomMatcher(new Random(46), 200);
+        MatchCache cache = new MatchCache(matcher, 6, 64);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> runs = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                Random random = new Random(47 + t);
+                runs.add(pool.submit(() -> {
+                    for (int i = 0; i < 5000; i++) {
+                        int rgb = random.nextInt(256) * 0x010305 & 0xffffff;
+                        if (cache.nearest(rgb) != matcher.nearest(center(rgb, 6))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> run : runs) {
+                assertTrue(run.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(20000, cache.getHits() + cache.getMisses());
+        assertEquals(64, cache.size());
+    }
+
+    // Center of the quantization cell of rgb, as the cache matches it
+    private static int center(int rgb, int bits) {
+        int drop = 8 - bits;
+        int keep = (0xff >> drop) << drop;
+        int half = 1 << (7 - bits);
+        return rgb & ((keep << 16) | (keep << 8) | keep) | (half << 16) | (half << 8) | half;
+    }
+
+    private static ColorMatcher randomMatcher(Random random, int size) {
+        int[] ids = new int[size];
+        int[] colors = new int[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = i;
+            colors[i] = random.nextInt(0x1000000);
+        }
+        return new ColorMatcher(ids, colors);
+    }
+}
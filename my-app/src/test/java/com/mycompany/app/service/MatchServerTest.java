@@ -0,0 +1,96 @@
+package com.mycompany.app.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for MatchServer, over a real socket on an ephemeral port.
+ */
+public class MatchServerTest {
+
+    @TempDir
+    Path dir;
+
+    private MatchServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @AfterEach
+    public void stopServer() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void answersSingleAndBatchedQueries() throws Exception {
+        Path index = dir.resolve("image_info.bin");
+        ColorIndex.write(index, List.of(record("red.png", 250, 0, 0), record("green.png", 0, 250, 0),
+            record("blue.png", 0, 0, 250)));
+        server = new MatchServer(0, index, 2);
+        server.start();
+
+        HttpResponse<String> single = get("/match?rgb=R255G10B10");
+        assertEquals(200, single.statusCode());
+        assertTrue(single.body().contains("\"fileName\":\"red.png\""), single.body());
+
+        HttpResponse<String> batch = get("/match?rgb=%2300ff00&rgb=0,0,255&k=2&metric=de2000");
+        assertEquals(200, batch.statusCode());
+        String body = batch.body();
+        assertTrue(body.indexOf("green.png") < body.indexOf("blue.png"), body);
+        assertEquals(4, body.split("fileName").length - 1, body);
+
+        HttpResponse<String> posted = client.send(HttpRequest.newBuilder(uri("/match?k=1"))
+            .POST(HttpRequest.BodyPublishers.ofString("R0G0B255\nR250G0B0\n")).build(),
+            HttpResponse.BodyHandlers.ofString());
+        assertTrue(posted.body().indexOf("blue.png") < posted.body().indexOf("red.png"), posted.body());
+
+        get("/match?rgb=R255G10B10");
+        String health = get("/health").body();
+        assertTrue(health.contains("\"hits\":1"), health);
+
+        assertEquals(400, get("/match?rgb=purple").statusCode());
+        assertEquals(400, get("/match?rgb=R1G2B3&k=0").statusCode());
+        assertEquals(400, get("/match").statusCode());
+    }
+
+    @Test
+    public void reloadsWhenTheIndexIsRewritten() throws Exception {
+        Path index = dir.resolve("image_info.bin");
+        server = new MatchServer(0, index, 1);
+        server.start();
+        assertEquals(503, get("/match?rgb=R1G2B3").statusCode());
+
+        ColorIndex.write(index, List.of(record("red.png", 250, 0, 0)));
+        server.reloadIfChanged();
+        assertEquals(1, server.size());
+
+        ColorIndex.write(index, List.of(record("red.png", 250, 0, 0), record("pink.png", 250, 100, 100)));
+        server.reloadIfChanged();
+        assertEquals(2, server.size());
+        assertTrue(get("/match?rgb=R250G100B100").body().contains("pink.png"));
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(uri(path)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.getPort() + path);
+    }
+
+    private static ImageRecord record(String name, int red, int green, int blue) {
+        return new ImageRecord(name, "/" + name, 0, 0, 0, ColorStats.ofUniformColor(8, 8, 64, red, green, blue));
+    }
+}
@@ -0,0 +1,61 @@
+package com.mycompany.app.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for PaletteExtractor.
+ */
+public class PaletteExtractorTest {
+
+    @Test
+    public void findsFlatColorsWithTheirShares() {
+        // 50% red, 30% green, 20% blue, plus transparent pixels that must not count
+        BufferedImage image = new BufferedImage(10, 11, BufferedImage.TYPE_INT_ARGB);
+        for (int x = 0; x < 10; x++) {
+            for (int y = 0; y < 10; y++) {
+                image.setRGB(x, y, x < 5 ? 0xff_f00000 : x < 8 ? 0xff_00f000 : 0xff_0000f0);
+            }
+            image.setRGB(x, 10, 0x40_ffffff);
+        }
+
+        Palette palette = ImagePixelParser.colorStats(image).getPalette();
+
+        assertEquals(3, palette.size());
+        assertEquals(0xf40404, palette.color(0)); // center of the 5-bit cell
+        assertEquals(0x04f404, palette.color(1));
+        assertEquals(0x0404f4, palette.color(2));
+        assertEquals(0.5f, palette.weight(0), 1e-6);
+        assertEquals(0.3f, palette.weight(1), 1e-6);
+        assertEquals(0.2f, palette.weight(2), 1e-6);
+        assertEquals(palette, PaletteExtractor.extract(image, PaletteExtractor.DEFAULT_COLORS));
+    }
+
+    @Test
+    public void mergesColorsDownToK() {
+        BufferedImage image = new BufferedImage(4, 1, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, 0x000000);
+        image.setRGB(1, 0, 0x080808);
+        image.setRGB(2, 0, 0xf8f8f8);
+        image.setRGB(3, 0, 0xf0f0f0);
+
+        Palette palette = PaletteExtractor.extract(image, 2); // means of the cell centers
+
+        assertEquals(2, palette.size());
+        assertEquals(0.5f, palette.weight(0), 1e-6);
+        assertEquals(0.5f, palette.weight(1), 1e-6);
+        assertEquals(0x080808, Math.min(palette.color(0), palette.color(1)));
+        assertEquals(0xf8f8f8, Math.max(palette.color(0), palette.color(1)));
+        assertEquals(1f, PaletteExtractor.extract(image, 1).weight(0), 1e-6);
+    }
+
+    @Test
+    public void transparentImageHasEmptyPalette() {
+        BufferedImage image = new BufferedImage(3, 3, BufferedImage.TYPE_INT_ARGB);
+
+        assertEquals(Palette.empty(), ImagePixelParser.colorStats(image).getPalette());
+    }
+}
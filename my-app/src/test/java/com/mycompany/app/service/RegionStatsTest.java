@@ -0,0 +1,133 @@
+package com.mycompany.app.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for RegionStats, against brute-force averages.
+ */
+public class RegionStatsTest {
+
+    @Test
+    public void rectanglesAndCirclesAreExactAtStrideOne() {
+        BufferedImage image = noise(61, 47, 1);
+        RegionStats stats = RegionStats.of(image);
+        assertEquals(1, stats.getStride());
+        Random random = new Random(2);
+        for (int i = 0; i < 300; i++) {
+            int x = random.nextInt(70) - 5;
+            int y = random.nextInt(55) - 5;
+            int w = random.nextInt(40);
+            int h = random.nextInt(40);
+            RegionStats.Average average = stats.average(x, y, w, h);
+            assertTrue(average.isExact());
+            assertEquals(bruteForce(image, x, y, w, h, -1, -1, -1), average.getRgb(), "rect " + x + "," + y);
+
+            int radius = random.nextInt(12);
+            RegionStats.Average circle = stats.averageInCircle(x, y, radius);
+            assertTrue(circle.isExact());
+            assertEquals(bruteForce(image, x - radius, y - radius, 2 * radius + 1, 2 * radius + 1, x, y, radius),
+                circle.getRgb(), "circle " + x + "," + y + " r" + radius);
+        }
+    }
+
+    @Test
+    public void stridedEstimatesStayWithinTheirBound() {
+        BufferedImage image = noise(203, 150, 3);
+        RegionStats stats = RegionStats.of(image, 8);
+        assertEquals(8, stats.getStride());
+        Random random = new Random(4);
+        for (int i = 0; i < 300; i++) {
+            int x = random.nextInt(203);
+            int y = random.nextInt(150);
+            int w = 1 + random.nextInt(120);
+            int h = 1 + random.nextInt(120);
+            checkWithinBound(image, stats.average(x, y, w, h), bruteExact(image, x, y, w, h, -1, -1, -1));
+
+            int radius = random.nextInt(30);
+            checkWithinBound(image, stats.averageInCircle(x, y, radius),
+                bruteExact(image, x - radius, y - radius, 2 * radius + 1, 2 * radius + 1, x, y, radius));
+        }
+
+        // Block-aligned regions, and the whole image with its narrower edge blocks, are exact
+        RegionStats.Average aligned = stats.average(16, 8, 64, 40);
+        assertTrue(aligned.isExact());
+        assertEquals(bruteForce(image, 16, 8, 64, 40, -1, -1, -1), aligned.getRgb());
+        RegionStats.Average whole = stats.average(0, 0, 203, 150);
+        assertTrue(whole.isExact());
+        assertEquals(ImagePixelParser.colorStats(image).toRgbString(), whole.toRgbString());
+    }
+
+    @Test
+    public void picksAStrideForLargeArt() {
+        BufferedImage image = new BufferedImage(2500, 1000, BufferedImage.TYPE_INT_ARGB);
+        RegionStats stats = RegionStats.of(image);
+        assertEquals(2, stats.getStride());
+        assertFalse(stats.average(0, 0, 2500, 1000).hasAverage()); // fully transparent
+    }
+
+    private static void checkWithinBound(BufferedImage image, RegionStats.Average estimate, double[] exact) {
+        if (exact == null) {
+            assertFalse(estimate.hasAverage() && estimate.isExact());
+            return;
+        }
+        assertTrue(estimate.hasAverage());
+        int rgb = estimate.getRgb();
+        double[] channels = {(rgb >> 16) & 0xff, (rgb >> 8) & 0xff, rgb & 0xff};
+        for (int c = 0; c < 3; c++) {
+            // The estimate is truncated to whole channel values
+            assertTrue(Math.abs(channels[c] - exact[c]) <= estimate.getErrorBound() + 1,
+                "channel " + c + ": " + channels[c] + " vs " + exact[c] + " bound " + estimate.getErrorBound());
+        }
+    }
+
+    // Exact average of opaque pixels in the rectangle, or in the circle when radius >= 0
+    private static double[] bruteExact(BufferedImage image, int x, int y, int w, int h, int cx, int cy, int radius) {
+        long r = 0;
+        long g = 0;
+        long b = 0;
+        long n = 0;
+        for (int py = Math.max(0, y); py < Math.min(image.getHeight(), y + h); py++) {
+            for (int px = Math.max(0, x); px < Math.min(image.getWidth(), x + w); px++) {
+                if (radius >= 0 && (long) (px - cx) * (px - cx) + (long) (py - cy) * (py - cy) > (long) radius * radius) {
+                    continue;
+                }
+                int argb = image.getRGB(px, py);
+                if ((argb >>> 24) == 255) {
+                    r += (argb >> 16) & 0xff;
+                    g += (argb >> 8) & 0xff;
+                    b += argb & 0xff;
+                    n++;
+                }
+            }
+        }
+        return n == 0 ? null : new double[] {(double) r / n, (double) g / n, (double) b / n};
+    }
+
+    private static int bruteForce(BufferedImage image, int x, int y, int w, int h, int cx, int cy, int radius) {
+        double[] exact = bruteExact(image, x, y, w, h, cx, cy, radius);
+        if (exact == null) {
+            return -1;
+        }
+        return (int) exact[0] << 16 | (int) exact[1] << 8 | (int) exact[2];
+    }
+
+    // Random colors, about a quarter of them transparent
+    private static BufferedImage noise(int width, int height, long seed) {
+        Random random = new Random(seed);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int alpha = random.nextInt(4) == 0 ? random.nextInt(255) : 255;
+                image.setRGB(x, y, alpha << 24 | random.nextInt(0x1000000));
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,143 @@
+package com.mycompany.app.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for ShardSpec and merging the partial catalogues of sharded runs.
+ */
+public class ShardSpecTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void parsesAndSplitsNamesIntoDisjointShards() {
+        ShardSpec shard = ShardSpec.parse("2/5");
+        assertEquals(2, shard.getIndex());
+        assertEquals(5, shard.getCount());
+        assertEquals(dir.resolve("image_manifest.shard-2-of-5.json"),
+            shard.partialPath(dir.resolve("image_manifest.json")));
+        assertThrows(IllegalArgumentException.class, () -> ShardSpec.parse("5/5"));
+        assertThrows(IllegalArgumentException.class, () -> ShardSpec.parse("1"));
+        assertThrows(IllegalArgumentException.class, () -> ShardSpec.parse("a/b"));
+
+        int[] sizes = new int[5];
+        for (int i = 0; i < 1000; i++) {
+            String name = "sprite-" + i + ".png";
+            int owners = 0;
+            for (int s = 0; s < 5; s++) {
+                if (new ShardSpec(s, 5).contains(name)) {
+                    owners++;
+                    sizes[s]++;
+                }
+            }
+            assertEquals(1, owners, name);
+            assertTrue(ShardSpec.ALL.contains(name));
+        }
+        for (int size : sizes) {
+            assertTrue(size > 150 && size < 250, "uneven shard of " + size);
+        }
+    }
+
+    @Test
+    public void mergedShardsMatchAnUnshardedRun() throws IOException {
+        Path images = Files.createDirectory(dir.resolve("images"));
+        for (int i = 0; i < 12; i++) {
+            BufferedImage image = new BufferedImage(6, 6, BufferedImage.TYPE_INT_RGB);
+            image.setRGB(i % 6, i / 6, 0x102030 * (i + 1));
+            ImageIO.write(image, "png", images.resolve("sprite-" + i + ".png").toFile());
+        }
+
+        Path whole = Files.createDirectory(dir.resolve("whole"));
+        try (ImageSource source = ImageSource.directory(images)) {
+            DocumentPokemon.index(source, whole.resolve("image_info.json"), whole.resolve("image_info.bin"),
+                whole.resolve("image_manifest.json"), 2, 4);
+        }
+
+        Path sharded = Files.createDirectory(dir.resolve("sharded"));
+        List<Path> partials = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ShardSpec shard = new ShardSpec(i, 3);
+            Path partial = shard.partialPath(sharded.resolve("image_manifest.json"));
+            try (ImageSource source = ImageSource.directory(images)) {
+                DocumentPokemon.index(source, shard, null, null, partial, 2, 4);
+            }
+            partials.add(partial);
+        }
+        assertEquals(12, DocumentPokemon.mergeShards(partials, sharded.resolve("image_info.json"),
+            sharded.resolve("image_info.bin")));
+
+        assertEquals(entries(ColorIndex.open(whole.resolve("image_info.bin"))),
+            entries(ColorIndex.open(sharded.resolve("image_info.bin"))));
+        assertTrue(Files.readString(sharded.resolve("image_info.json")).contains("\"totalImages\": 12"));
+
+        // Every partial must be there before anything is written
+        assertThrows(IOException.class, () -> DocumentPokemon.mergeShards(
+            List.of(partials.get(0), sharded.resolve("missing.json")), dir.resolve("out.json"), dir.resolve("out.bin")));
+        assertTrue(Files.notExists(dir.resolve("out.json")));
+    }
+
+    @Test
+    public void badPartialLeavesThePreviousOutputsUntouched() throws IOException {
+        Path images = Files.createDirectory(dir.resolve("images"));
+        for (int i = 0; i < 6; i++) {
+            BufferedImage image = new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+            image.setRGB(0, 0, 0x405060 * (i + 1));
+            ImageIO.write(image, "png", images.resolve("sprite-" + i + ".png").toFile());
+        }
+        List<Path> partials = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            ShardSpec shard = new ShardSpec(i, 2);
+            Path partial = shard.partialPath(dir.resolve("image_manifest.json"));
+            try (ImageSource source = ImageSource.directory(images)) {
+                DocumentPokemon.index(source, shard, null, null, partial, 1, 1);
+            }
+            partials.add(partial);
+        }
+        Path catalogue = dir.resolve("image_info.json");
+        Path binaryIndex = dir.resolve("image_info.bin");
+        assertEquals(6, DocumentPokemon.mergeShards(partials, catalogue, binaryIndex));
+        byte[] previousCatalogue = Files.readAllBytes(catalogue);
+        byte[] previousIndex = Files.readAllBytes(binaryIndex);
+
+        // The second partial is read after the first has already been streamed out
+        for (String broken : List.of("{\"version\": 1, \"records\": []}", "{\"version\": ")) {
+            Files.writeString(partials.get(1), broken);
+            assertThrows(IOException.class, () -> DocumentPokemon.mergeShards(partials, catalogue, binaryIndex));
+            assertArrayEquals(previousCatalogue, Files.readAllBytes(catalogue));
+            assertArrayEquals(previousIndex, Files.readAllBytes(binaryIndex));
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(List.of(), files.map(file -> file.getFileName().toString())
+                .filter(name -> name.endsWith(".tmp")).collect(Collectors.toList()));
+        }
+    }
+
+    // Name to rgb, independent of record order
+    private static Map<String, Integer> entries(ColorIndex index) {
+        Map<String, Integer> entries = new TreeMap<>();
+        for (int i = 0; i < index.size(); i++) {
+            entries.put(index.name(i), index.rgb(i));
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,54 @@
+package com.mycompany.app.view;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.jupiter.api.Test;
+
+import com.mycompany.app.service.ColorStats;
+import com.mycompany.app.service.RegionStats;
+
+/**
+ * Unit tests for SpriteCache.
+ */
+public class SpriteCacheTest {
+
+    @Test
+    public void evictsLeastRecentlyUsedPastTheByteBudget() {
+        SpriteLoader.Sprite a = sprite("a.png", 10);
+        long each = SpriteCache.sizeOf(a);
+        SpriteCache cache = new SpriteCache(3 * each); // three 10x10 sprites
+        cache.put("a.png", a);
+        cache.put("b.png", sprite("b.png", 10));
+        cache.put("c.png", sprite("c.png", 10));
+        assertSame(a, cache.get("a.png")); // a is now the most recently used
+
+        cache.put("d.png", sprite("d.png", 10));
+        assertNull(cache.get("b.png"));
+        assertNotNull(cache.get("a.png"));
+        assertNotNull(cache.get("c.png"));
+        assertEquals(3, cache.size());
+        assertEquals(3 * each, cache.getBytes());
+    }
+
+    @Test
+    public void keepsAnOversizedSpriteUntilTheNextOne() {
+        SpriteCache cache = new SpriteCache(100);
+        cache.put("big.png", sprite("big.png", 20));
+        assertNotNull(cache.get("big.png"));
+        SpriteLoader.Sprite small = sprite("small.png", 1);
+        cache.put("small.png", small);
+        assertNull(cache.get("big.png"));
+        assertEquals(SpriteCache.sizeOf(small), cache.getBytes());
+    }
+
+    private static SpriteLoader.Sprite sprite(String name, int size) {
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        return new SpriteLoader.Sprite(name, image, ColorStats.ofUniformColor(size, size, size * size, 10, 20, 30),
+            RegionStats.of(image));
+    }
+}
@@ -0,0 +1,73 @@
+package com.mycompany.app.view;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for how SpriteLoader decodes and shares sprites.
+ */
+public class SpriteLoaderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void concurrentLoadsOfOneSpriteDecodeItOnce() throws Exception {
+        BufferedImage image = new BufferedImage(512, 512, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 512; y++) {
+            for (int x = 0; x < 512; x++) {
+                image.setRGB(x, y, x * 31 + y * 17);
+            }
+        }
+        ImageIO.write(image, "png", dir.resolve("mew.png").toFile());
+        SpriteLoader loader = new SpriteLoader(dir, new SpriteCache(64L << 20));
+
+        // Like the selection and prefetch threads asking for the same sprite at once
+        int threads = 4;
+        CyclicBarrier start = new CyclicBarrier(threads);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<SpriteLoader.Sprite>> loads = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                loads.add(pool.submit(() -> {
+                    start.await();
+                    return loader.load("mew.png");
+                }));
+            }
+            SpriteLoader.Sprite first = loads.get(0).get();
+            assertEquals(512, first.getImage().getWidth());
+            for (Future<SpriteLoader.Sprite> load : loads) {
+                assertSame(first, load.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void reportsFilesThatAreNotImages() throws IOException {
+        Files.writeString(dir.resolve("notes.png"), "not an image");
+        SpriteLoader loader = new SpriteLoader(dir, new SpriteCache(1 << 20));
+
+        assertThrows(IOException.class, () -> loader.load("notes.png"));
+        // A failed load is not remembered as in progress
+        assertThrows(IOException.class, () -> loader.load("notes.png"));
+    }
+}
@@ -0,0 +1,59 @@
+package com.mycompany.app.view;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for when ThumbnailGrid loads its thumbnails.
+ */
+public class ThumbnailGridTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void loadsThumbnailsAgainAfterTheImagesAreReplaced() throws IOException, InterruptedException {
+        List<String> names = new ArrayList<>();
+        BufferedImage image = new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB);
+        for (int i = 0; i < 40; i++) {
+            String name = "sprite-" + i + ".png";
+            ImageIO.write(image, "png", dir.resolve(name).toFile());
+            names.add(name);
+        }
+        ThumbnailGrid grid = new ThumbnailGrid(dir, null);
+        try {
+            // Every cell asks for its thumbnail, then the list is replaced before most have loaded
+            grid.setImages(names);
+            render(grid, names);
+            grid.setImages(names);
+            render(grid, names);
+
+            long deadline = System.nanoTime() + 10_000_000_000L;
+            while (!names.stream().allMatch(grid::hasThumbnail) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            for (String name : names) {
+                assertTrue(grid.hasThumbnail(name), name);
+            }
+        } finally {
+            grid.close();
+        }
+    }
+
+    // As painting the list would, without needing a screen
+    private static void render(ThumbnailGrid grid, List<String> names) {
+        for (int i = 0; i < names.size(); i++) {
+            grid.getCellRenderer().getListCellRendererComponent(grid, names.get(i), i, false, false);
+        }
+    }
+}
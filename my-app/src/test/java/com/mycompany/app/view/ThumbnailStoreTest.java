@@ -0,0 +1,144 @@
+package com.mycompany.app.view;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for ThumbnailStore and thumbnail creation.
+ */
+public class ThumbnailStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void persistsThumbnailsAcrossReopens() throws IOException {
+        Path file = dir.resolve("thumbs.bin");
+        BufferedImage first = image(3, 2, 0xff102030);
+        try (ThumbnailStore store = new ThumbnailStore(file, 64)) {
+            store.put("a.png", 100, 5, first);
+            store.put("b.png", 200, 6, image(2, 2, 0x80ffffff));
+            store.put("a.png", 101, 7, image(1, 1, 0xff000000)); // a.png changed
+        }
+
+        try (ThumbnailStore store = new ThumbnailStore(file, 64)) {
+            assertEquals(2, store.size());
+            assertNull(store.get("a.png", 100, 5)); // superseded by the later record
+            assertPixels(image(1, 1, 0xff000000), store.get("a.png", 101, 7));
+            assertPixels(image(2, 2, 0x80ffffff), store.get("b.png", 200, 6));
+            assertNull(store.get("c.png", 1, 1));
+        }
+
+        // A different thumbnail size starts over
+        try (ThumbnailStore store = new ThumbnailStore(file, 32)) {
+            assertEquals(0, store.size());
+        }
+    }
+
+    @Test
+    public void dropsARecordCutShort() throws IOException {
+        Path file = dir.resolve("thumbs.bin");
+        try (ThumbnailStore store = new ThumbnailStore(file, 64)) {
+            store.put("a.png", 100, 5, image(4, 4, 0xff00ff00));
+            store.put("b.png", 100, 5, image(4, 4, 0xffff0000));
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 10);
+        }
+
+        try (ThumbnailStore store = new ThumbnailStore(file, 64)) {
+            assertEquals(1, store.size());
+            assertNotNull(store.get("a.png", 100, 5));
+            store.put("c.png", 100, 5, image(2, 2, 0xff0000ff));
+        }
+        try (ThumbnailStore store = new ThumbnailStore(file, 64)) {
+            assertEquals(2, store.size());
+            assertPixels(image(2, 2, 0xff0000ff), store.get("c.png", 100, 5));
+        }
+    }
+
+    @Test
+    public void compactsSupersededRecordsOnOpen() throws IOException {
+        Path file = dir.resolve("thumbs.bin");
+        long compactSize;
+        try (ThumbnailStore store = new ThumbnailStore(file, 64)) {
+            for (String name : new String[] {"a.png", "b.png", "c.png", "d.png"}) {
+                store.put(name, 100, 5, image(8, 8, 0xff00ff00));
+            }
+            compactSize = store.fileSize();
+            // One superseded thumbnail in five stays below the threshold
+            store.put("d.png", 100, 6, image(8, 8, 0xffff00ff));
+        }
+        try (ThumbnailStore store = new ThumbnailStore(file, 64)) {
+            assertEquals(Files.size(file), store.fileSize());
+            assertTrue(store.fileSize() > compactSize);
+            // a.png keeps changing
+            for (int i = 0; i < 10; i++) {
+                store.put("a.png", 100, 10 + i, image(8, 8, 0xff000000 | i));
+            }
+        }
+
+        try (ThumbnailStore store = new ThumbnailStore(file, 64)) {
+            assertEquals(compactSize, store.fileSize());
+            assertEquals(compactSize, Files.size(file));
+            assertEquals(4, store.size());
+            assertPixels(image(8, 8, 0xff000009), store.get("a.png", 100, 19));
+            assertPixels(image(8, 8, 0xffff00ff), store.get("d.png", 100, 6));
+            store.put("e.png", 100, 5, image(2, 2, 0xff0000ff));
+        }
+        assertFalse(Files.exists(dir.resolve("thumbs.bin.tmp")));
+        try (ThumbnailStore store = new ThumbnailStore(file, 64)) {
+            assertEquals(5, store.size());
+            assertPixels(image(2, 2, 0xff0000ff), store.get("e.png", 100, 5));
+            assertPixels(image(8, 8, 0xff00ff00), store.get("b.png", 100, 5));
+        }
+    }
+
+    @Test
+    public void scalesLargeImagesToFit() throws IOException {
+        Path png = dir.resolve("big.png");
+        ImageIO.write(image(475, 300, 0xff336699), "png", png.toFile());
+
+        BufferedImage thumbnail = ThumbnailGrid.createThumbnail(png, 64);
+        assertEquals(64, thumbnail.getWidth());
+        assertEquals(40, thumbnail.getHeight());
+        assertEquals(0xff336699, thumbnail.getRGB(32, 20));
+        assertNull(ThumbnailGrid.createThumbnail(Files.writeString(dir.resolve("bad.png"), "nope"), 64));
+    }
+
+    private static BufferedImage image(int width, int height, int argb) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, argb);
+            }
+        }
+        return image;
+    }
+
+    private static void assertPixels(BufferedImage expected, BufferedImage actual) {
+        assertNotNull(actual);
+        int width = expected.getWidth();
+        int height = expected.getHeight();
+        assertEquals(width, actual.getWidth());
+        assertEquals(height, actual.getHeight());
+        assertArrayEquals(expected.getRGB(0, 0, width, height, null, 0, width),
+            actual.getRGB(0, 0, width, height, null, 0, width));
+    }
+}